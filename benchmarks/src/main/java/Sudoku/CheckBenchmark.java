@@ -0,0 +1,47 @@
+package Sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * measures SudokuBoard.check on a solved grid, and on a partially
+ * filled puzzle containing some colliding guesses.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckBenchmark {
+	@Param({"FULL", "PARTIAL"})
+	public String grid;
+
+	private SudokuBoard board;
+
+	@Setup
+	public void setUp() {
+		board = new SudokuBoard();
+		board.newBoard(Difficulty.MEDIUM);
+		if(grid.equals("FULL")) {
+			board.solve();
+			return;
+		}
+
+		// fill every third blank with the same guess, so some cells collide
+		int blanks = 0;
+		for(int r = 0; r < 9; r++) {
+			for(int c = 0; c < 9; c++) {
+				if(board.getDigitAt(r, c) == 0 && blanks++ % 3 == 0) {
+					board.putGuess(5, r, c);
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public boolean[][] check() {
+		return board.check();
+	}
+}
@@ -0,0 +1,66 @@
+package Sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * measures SudokuBoard.newBoard (grid randomization + digit removal)
+ * for every Difficulty, and the Generator.isCellRemovable test that removal relies on.
+ * (9x9 by default- run with -p boxSize=4,5 for 16x16 and 25x25 boards)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GenerationBenchmark {
+	@Param({"TRIVIAL", "EASY", "MEDIUM", "HARD", "EXTREME"})
+	public String difficulty;
+
+	@Param({"3"})
+	public int boxSize;
+
+	private Difficulty diff;
+	private SudokuBoard board;
+	/** the puzzle isCellRemovable tests, and its digits in a CandidateEngine */
+	private BoardShape shape;
+	private int[] cells;
+	private CandidateEngine engine;
+
+	@Setup
+	public void setUp() {
+		diff = Difficulty.valueOf(difficulty);
+		board = new SudokuBoard(boxSize);
+		board.newBoard(diff);
+		shape = BoardShape.of(boxSize);
+		cells = board.getCells();
+		engine = new CandidateEngine(shape);
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(cells[cell] != 0) {
+				engine.place(cells[cell], cell / shape.size, cell % shape.size);
+			}
+		}
+	}
+
+	@Benchmark
+	public SudokuBoard newBoard() {
+		board.newBoard(diff);
+		return board;
+	}
+
+	/** tests every cell of a freshly generated puzzle for removability */
+	@Benchmark
+	public int isCellRemovable() {
+		int removable = 0;
+		for(int r = 0; r < shape.size; r++) {
+			for(int c = 0; c < shape.size; c++) {
+				if(Generator.isCellRemovable(shape, cells, engine, r, c)) {
+					removable++;
+				}
+			}
+		}
+		return removable;
+	}
+}
@@ -0,0 +1,71 @@
+package Sudoku;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * measures SudokuBoard.solve on a fixed corpus of puzzles,
+ * from ones that need only singles up to ones built to defeat
+ * naive backtracking.
+ * <p>
+ * SolutionCache is disabled in the fork- otherwise every solve after
+ * the first would be a cache hit instead of a search.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dsudoku.solutionCacheBytes=0")
+@State(Scope.Thread)
+public class SolveBenchmark {
+	/** the puzzle corpus, keyed by the names used for the puzzle parameter */
+	private static final String EASY =
+			"003020600900305001001806400008102900700000008006708200002609500800203009005010300";
+	private static final String MEDIUM =
+			"4.....8.5.3..........7......2.....6.....8.4......1.......6.3.7.5..2.....1.4......";
+	private static final String HARD =
+			"800000000003600000070090200050007000000045700000100030001000068008500010090000400";
+	/** designed so that a top-left to bottom-right backtracker explores millions of nodes */
+	private static final String PATHOLOGICAL =
+			"..............3.85..1.2.......5.7.....4...1...9.......5......73..2.1........4...9";
+
+	@Param({"EASY", "MEDIUM", "HARD", "PATHOLOGICAL"})
+	public String puzzle;
+
+	@Param({"DANCING_LINKS"})
+	public String backend;
+
+	private int[] cells = new int[PuzzleFormat.LENGTH];
+	private SudokuBoard board;
+
+	@Setup
+	public void setUp() {
+		String line;
+		switch(puzzle) {
+			case "EASY" :
+				line = EASY;
+				break;
+			case "MEDIUM" :
+				line = MEDIUM;
+				break;
+			case "HARD" :
+				line = HARD;
+				break;
+			default :
+				line = PATHOLOGICAL;
+				break;
+		}
+		PuzzleFormat.parse(line, cells);
+
+		board = new SudokuBoard();
+		board.setSolverBackend(SolverBackend.valueOf(backend));
+		board.loadPuzzle(cells);
+	}
+
+	@Benchmark
+	public SudokuBoard solve() {
+		board.solve(); // clears the previous solution before solving again
+		return board;
+	}
+}
@@ -0,0 +1,153 @@
+package Sudoku;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * checks Canonicalizer (and the BloomFilter that --make-bank pairs it with):
+ * a puzzle disguised by SymmetryTransforms must canonicalize to the same
+ * grid, different puzzles must not, and on 4x4 boards the pruned search
+ * must agree with trying every transform.
+ * <p>
+ * a plain class (no test framework)- surefire runs each public test method.
+ */
+public class CanonicalizerTest {
+	private static final int PUZZLES = 40;
+
+	/**
+	 * @return - cells disguised by a random relabelling, row and column order, and transpose
+	 */
+	private static int[] disguise(int[] cells, int boxSize, SplittableRandom rand) {
+		int size = boxSize * boxSize;
+		int[] rowOrder = new int[size];
+		int[] colOrder = new int[size];
+		SymmetryTransforms.randomLineOrder(rowOrder, boxSize, rand);
+		SymmetryTransforms.randomLineOrder(colOrder, boxSize, rand);
+		int[] relabel = new int[size + 1];
+		for(int d = 1; d <= size; d++) {
+			relabel[d] = d;
+		}
+		for(int d = size; d > 1; d--) {
+			int other = 1 + rand.nextInt(d);
+			int swap = relabel[d];
+			relabel[d] = relabel[other];
+			relabel[other] = swap;
+		}
+		int[] disguised = new int[cells.length];
+		SymmetryTransforms.apply(cells, disguised, rowOrder, colOrder, rand.nextBoolean(), relabel);
+		return disguised;
+	}
+
+	private static int[] canonical(Canonicalizer canonicalizer, int[] cells) {
+		int[] canonical = new int[cells.length];
+		canonicalizer.canonicalize(cells, canonical);
+		return canonical;
+	}
+
+	private static void check(boolean condition, String message) {
+		if(!condition) {
+			throw new AssertionError(message);
+		}
+	}
+
+	public void testDisguisedPuzzleHasSameCanonicalForm() {
+		SplittableRandom rand = new SplittableRandom(1);
+		Canonicalizer canonicalizer = new Canonicalizer(BoardShape.STANDARD);
+		for(int seed = 0; seed < PUZZLES; seed++) {
+			Difficulty diff = Difficulty.values()[seed % Difficulty.values().length];
+			int[] puzzle = Generator.generate(BoardShape.STANDARD, diff, seed).getCells();
+			int[] expected = canonical(canonicalizer, puzzle);
+			for(int i = 0; i < 3; i++) {
+				int[] disguised = disguise(puzzle, 3, rand);
+				check(Arrays.equals(expected, canonical(canonicalizer, disguised)),
+						"disguised puzzle canonicalized differently: " + PuzzleFormat.format(puzzle));
+				check(canonicalizer.canonicalHash(puzzle).equals(canonicalizer.canonicalHash(disguised)),
+						"disguised puzzle hashed differently: " + PuzzleFormat.format(puzzle));
+			}
+		}
+	}
+
+	public void testDistinctPuzzlesHaveDistinctCanonicalForms() {
+		Canonicalizer canonicalizer = new Canonicalizer(BoardShape.STANDARD);
+		int[][] forms = new int[PUZZLES][];
+		for(int seed = 0; seed < PUZZLES; seed++) {
+			Difficulty diff = Difficulty.values()[seed % Difficulty.values().length];
+			forms[seed] = canonical(canonicalizer, Generator.generate(BoardShape.STANDARD, diff, seed).getCells());
+			for(int other = 0; other < seed; other++) {
+				check(!Arrays.equals(forms[seed], forms[other]),
+						"puzzles " + other + " and " + seed + " share a canonical form");
+			}
+		}
+
+		// one more given makes a different puzzle
+		Grid puzzle = Generator.generate(BoardShape.STANDARD, Difficulty.HARD, 7);
+		int[] cells = puzzle.getCells();
+		int[] solution = Solver.solve(puzzle).getCells();
+		int blank = 0;
+		while(cells[blank] != 0) {
+			blank++;
+		}
+		int[] moreGivens = cells.clone();
+		moreGivens[blank] = solution[blank];
+		check(!Arrays.equals(canonical(canonicalizer, cells), canonical(canonicalizer, moreGivens)),
+				"a puzzle with an extra given shares its canonical form");
+	}
+
+	/**
+	 * compares the pruned search with the smallest of every transform of 4x4 puzzles
+	 * (128 geometric transforms, each with all 24 relabellings)
+	 */
+	public void testMatchesExhaustiveSearchOn4x4() {
+		BoardShape shape = BoardShape.of(2);
+		int[][] lineOrders = {{0, 1, 2, 3}, {1, 0, 2, 3}, {0, 1, 3, 2}, {1, 0, 3, 2},
+		                      {2, 3, 0, 1}, {3, 2, 0, 1}, {2, 3, 1, 0}, {3, 2, 1, 0}};
+		int[][] relabels = new int[24][];
+		int count = 0;
+		for(int a = 1; a <= 4; a++) {
+			for(int b = 1; b <= 4; b++) {
+				for(int c = 1; c <= 4; c++) {
+					int d = 10 - a - b - c;
+					if(a != b && a != c && b != c && d >= 1 && d <= 4 && d != a && d != b && d != c) {
+						relabels[count++] = new int[] {0, a, b, c, d};
+					}
+				}
+			}
+		}
+
+		Canonicalizer canonicalizer = new Canonicalizer(shape);
+		int[] transformed = new int[shape.cells];
+		for(int seed = 0; seed < PUZZLES; seed++) {
+			Grid puzzle = Generator.generate(shape, Difficulty.values()[seed % Difficulty.values().length], seed);
+			int[] cells = seed % 4 == 0 ? Solver.solve(puzzle).getCells() : puzzle.getCells();
+			int[] best = null;
+			for(int[] rowOrder : lineOrders) {
+				for(int[] colOrder : lineOrders) {
+					for(int transpose = 0; transpose < 2; transpose++) {
+						for(int[] relabel : relabels) {
+							SymmetryTransforms.apply(cells, transformed, rowOrder, colOrder, transpose == 1, relabel);
+							if(best == null || Arrays.compare(transformed, best) < 0) {
+								best = transformed.clone();
+							}
+						}
+					}
+				}
+			}
+			check(Arrays.equals(best, canonical(canonicalizer, cells)),
+					"not the smallest transform: " + Arrays.toString(cells));
+		}
+	}
+
+	public void testBloomFilterRejectsDisguisedDuplicates() {
+		SplittableRandom rand = new SplittableRandom(2);
+		Canonicalizer canonicalizer = new Canonicalizer(BoardShape.STANDARD);
+		BloomFilter seen = new BloomFilter(PUZZLES, 1e-6);
+		for(int seed = 0; seed < PUZZLES; seed++) {
+			int[] puzzle = Generator.generate(BoardShape.STANDARD, Difficulty.MEDIUM, seed).getCells();
+			check(seen.add(canonicalizer.canonicalHash(puzzle)), "new puzzle " + seed + " reported as seen");
+			GridHash disguised = canonicalizer.canonicalHash(disguise(puzzle, 3, rand));
+			check(seen.mightContain(disguised), "disguised puzzle " + seed + " not found");
+			check(!seen.add(disguised), "disguised puzzle " + seed + " added again");
+		}
+		check(seen.getCount() == PUZZLES, "count " + seen.getCount());
+	}
+}
@@ -0,0 +1,113 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * writes snapshots of the game to a save file in the background, through an
+ * AsynchronousFileChannel, so that saving never blocks the caller (the EDT).
+ * <p>
+ * at most one write is in flight. snapshots submitted meanwhile are coalesced-
+ * only the newest is kept, and written once the current write completes- so
+ * saving on every change costs at most one write at a time, however fast the
+ * changes come. records alternate between the file's two slots (see SavedGame).
+ */
+class Autosaver implements AutoCloseable {
+	/** where the game is saved unless another file is given */
+	static final Path DEFAULT_PATH = Paths.get(System.getProperty("user.home"), ".sudoku-autosave");
+	/** how long close() waits for the last write */
+	private static final long CLOSE_TIMEOUT_MILLIS = 2000;
+
+	private final AsynchronousFileChannel channel;
+
+	/** the sequence number of the last record started */
+	private long sequence;
+	/** the newest snapshot not yet written (null = none) */
+	private SavedGame pending;
+	private boolean writing;
+	private boolean failureReported;
+
+	/**
+	 * @param path - the save file (created if needed)
+	 * @param lastSequence - the sequence number of the newest record already in the
+	 * file (see SavedGame.readLatest), so that new records are read back as newer
+	 * @throws IOException - if the file cannot be opened
+	 */
+	Autosaver(Path path, long lastSequence) throws IOException {
+		channel = AsynchronousFileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		sequence = lastSequence;
+	}
+
+	/**
+	 * saves a snapshot of the game (in the background- returns at once)
+	 * @param game - the snapshot to write
+	 */
+	synchronized void submit(SavedGame game) {
+		pending = game;
+		if(!writing) {
+			writeNext();
+		}
+	}
+
+	/** starts writing pending (must hold the lock) */
+	private void writeNext() {
+		SavedGame game = pending;
+		pending = null;
+		sequence++;
+		ByteBuffer record = game.encode(sequence);
+		long position = (sequence & 1) * SavedGame.SLOT_SIZE;
+		writing = true;
+		channel.write(record, position, position, new CompletionHandler<Integer, Long>() {
+			@Override
+			public void completed(Integer written, Long start) {
+				if(record.hasRemaining()) { // a partial write- carry on from where it stopped
+					channel.write(record, start + record.position(), start, this);
+				} else {
+					finished();
+				}
+			}
+
+			@Override
+			public void failed(Throwable e, Long start) {
+				synchronized(Autosaver.this) {
+					if(!failureReported) {
+						System.err.println("autosave failed: " + e);
+						failureReported = true;
+					}
+				}
+				finished();
+			}
+		});
+	}
+
+	/** called when a write completes: starts the next, if a snapshot is waiting */
+	private synchronized void finished() {
+		writing = false;
+		if(pending != null) {
+			writeNext();
+		} else {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * waits (briefly) for the pending snapshots to be written, then closes the file
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MILLIS;
+		try {
+			while(writing && System.currentTimeMillis() < deadline) {
+				wait(Math.max(1, deadline - System.currentTimeMillis()));
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		channel.close();
+	}
+}
@@ -0,0 +1,144 @@
+package Sudoku;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * solves a stream of puzzle lines (see PuzzleFormat) without a GUI,
+ * spreading the work across a fork-join pool.
+ * <p>
+ * puzzles are read in chunks; each chunk is split between the pool's
+ * workers (each of which owns a DancingLinksSolver), and its solutions
+ * are written out in input order before the next chunk is read, so
+ * memory use stays constant no matter how long the input is.
+ * <p>
+ * each input line produces one output line: the solved puzzle,
+ * "unsolvable" if it has no solution, or "invalid" if it is not a
+ * well-formed puzzle. blank input lines are skipped.
+ */
+class BatchSolver {
+	/** the number of puzzles read (and held in memory) at a time */
+	private static final int CHUNK_SIZE = 16384;
+	/** chunks are split between workers until pieces are at most this long */
+	private static final int PUZZLES_PER_TASK = 64;
+
+	static final String UNSOLVABLE = "unsolvable";
+	static final String INVALID = "invalid";
+
+	/** each worker thread solves with its own solver */
+	private static final ThreadLocal<DancingLinksSolver> solvers =
+			ThreadLocal.withInitial(DancingLinksSolver::new);
+
+	private final ForkJoinPool pool;
+	private final LatencyHistogram latencies = new LatencyHistogram();
+
+	private long puzzleCount;
+	private long unsolvableCount;
+	private long invalidCount;
+	private long elapsedNanos;
+
+	/**
+	 * @param parallelism - the number of worker threads to solve with
+	 */
+	BatchSolver(int parallelism) {
+		pool = new ForkJoinPool(parallelism);
+	}
+
+	/** creates a batch solver that uses every available core */
+	BatchSolver() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * solves puzzles[from, to), replacing each with its output line
+	 */
+	private class SolveTask extends RecursiveAction {
+		private final String[] puzzles;
+		private final int from;
+		private final int to;
+
+		SolveTask(String[] puzzles, int from, int to) {
+			this.puzzles = puzzles;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if(to - from > PUZZLES_PER_TASK) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new SolveTask(puzzles, from, middle), new SolveTask(puzzles, middle, to));
+				return;
+			}
+
+			DancingLinksSolver solver = solvers.get();
+			int[] cells = new int[PuzzleFormat.LENGTH];
+			for(int i = from; i < to; i++) {
+				if(!PuzzleFormat.parse(puzzles[i], cells)) {
+					puzzles[i] = INVALID;
+					continue;
+				}
+				long start = System.nanoTime();
+				boolean solved = solver.solve(cells);
+				latencies.record(System.nanoTime() - start);
+				puzzles[i] = solved ? PuzzleFormat.format(cells) : UNSOLVABLE;
+			}
+		}
+	}
+
+	/**
+	 * solves every puzzle line of in, writing the results to out in the same order
+	 * @param in - the puzzles, one per line
+	 * @param out - receives one line per puzzle
+	 * @throws IOException - if reading or writing fails
+	 */
+	void run(BufferedReader in, Writer out) throws IOException {
+		long start = System.nanoTime();
+		String[] chunk = new String[CHUNK_SIZE];
+
+		try {
+			while(true) {
+				int length = 0;
+				String line;
+				while(length < CHUNK_SIZE && (line = in.readLine()) != null) {
+					if(!line.isBlank()) {
+						chunk[length++] = line;
+					}
+				}
+				if(length == 0) {
+					break;
+				}
+
+				pool.invoke(new SolveTask(chunk, 0, length));
+
+				for(int i = 0; i < length; i++) {
+					if(chunk[i] == UNSOLVABLE) {
+						unsolvableCount++;
+					} else if(chunk[i] == INVALID) {
+						invalidCount++;
+					}
+					out.write(chunk[i]);
+					out.write(System.lineSeparator());
+				}
+				puzzleCount += length;
+			}
+			out.flush();
+		} finally {
+			pool.shutdown();
+			elapsedNanos = System.nanoTime() - start;
+		}
+	}
+
+	/** @return - a one-line report of the throughput and latency of the last run */
+	String getSummary() {
+		double seconds = elapsedNanos / 1e9;
+		return String.format("%d puzzles (%d unsolvable, %d invalid) in %.3f s: %.0f puzzles/sec, "
+				+ "solve latency p50 %.1f us, p99 %.1f us",
+				puzzleCount, unsolvableCount, invalidCount, seconds,
+				seconds > 0 ? puzzleCount / seconds : 0.0,
+				latencies.getPercentile(50) / 1e3, latencies.getPercentile(99) / 1e3);
+	}
+}
@@ -0,0 +1,101 @@
+package Sudoku;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * a Bloom filter of GridHashes, kept off the heap in a direct buffer so that
+ * a filter sized for millions of puzzles costs the garbage collector nothing.
+ * <p>
+ * each hash sets getHashCount() bits, chosen by double hashing (bit i is
+ * high + i * low, modulo the size). add reports whether any of them was
+ * unset- a hash it has seen is always reported as seen, and a new one is
+ * mistaken for seen with about the false positive rate the filter was sized
+ * for (a producer then just throws away a puzzle it didn't need to).
+ * <p>
+ * thread-safe (add holds the filter's lock).
+ */
+class BloomFilter {
+	private final ByteBuffer bits;
+	private final long bitCount;
+	private final int hashCount;
+	private long count;
+
+	/**
+	 * @param expected - the number of hashes the filter is sized for
+	 * @param falsePositiveRate - the chance that a new hash is reported as seen,
+	 * once expected hashes have been added
+	 * @throws IllegalArgumentException - if the filter would need 2 GB or more
+	 */
+	BloomFilter(long expected, double falsePositiveRate) {
+		expected = Math.max(expected, 1);
+		double ln2 = Math.log(2);
+		long wanted = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (ln2 * ln2));
+		bitCount = Math.max(64, (wanted + 63) & ~63L);
+		if(bitCount / 8 > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("bloom filter too large: " + bitCount / 8 + " bytes");
+		}
+		hashCount = (int) Math.max(1, Math.round((double) bitCount / expected * ln2));
+		bits = ByteBuffer.allocateDirect((int) (bitCount / 8)).order(ByteOrder.nativeOrder());
+	}
+
+	/**
+	 * @param hash - a hash to remember
+	 * @return - was the hash new? (false if it, or a hash sharing its bits, was added before)
+	 */
+	synchronized boolean add(GridHash hash) {
+		boolean added = false;
+		long index = hash.high;
+		long step = hash.low | 1; // odd, so the bits don't repeat
+		for(int i = 0; i < hashCount; i++, index += step) {
+			long bit = Long.remainderUnsigned(index, bitCount);
+			int offset = (int) (bit >>> 6) << 3;
+			long word = bits.getLong(offset);
+			long mask = 1L << bit;
+			if((word & mask) == 0) {
+				bits.putLong(offset, word | mask);
+				added = true;
+			}
+		}
+		if(added) {
+			count++;
+		}
+		return added;
+	}
+
+	/**
+	 * @param hash - a hash
+	 * @return - might the hash have been added? (false means it certainly wasn't)
+	 */
+	synchronized boolean mightContain(GridHash hash) {
+		long index = hash.high;
+		long step = hash.low | 1;
+		for(int i = 0; i < hashCount; i++, index += step) {
+			long bit = Long.remainderUnsigned(index, bitCount);
+			if((bits.getLong((int) (bit >>> 6) << 3) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/** @return - the number of hashes added (that were new) */
+	synchronized long getCount() {
+		return count;
+	}
+
+	/** @return - the size of the filter, in bits */
+	long getBitCount() {
+		return bitCount;
+	}
+
+	/** @return - the number of bits set per hash */
+	int getHashCount() {
+		return hashCount;
+	}
+
+	/** @return - the chance that a new hash is now reported as seen */
+	synchronized double getFalsePositiveRate() {
+		return Math.pow(1 - Math.exp(-(double) hashCount * count / bitCount), hashCount);
+	}
+}
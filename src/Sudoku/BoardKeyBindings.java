@@ -35,6 +35,13 @@ public class BoardKeyBindings {
 			addKeyBinding(String.valueOf(n), e -> bp.fillSelectedCells(guess));
 		}
 		
+		// digits past 9 (16x16 and 25x25 boards) are the letters A-P, typed with alt
+		// (the plain letters hjkl are taken by navigation)
+		for(int n = 10; n <= 25; n++) {
+			final int guess = n;
+			addKeyBinding("alt " + GuiUtil.digitText(n), e -> bp.fillSelectedCells(guess));
+		}
+		
 		// destructive navigation
 		addKeyBinding("UP", e -> bp.moveSelection("UP", false));
 		addKeyBinding("DOWN", e -> bp.moveSelection("DOWN", false));
@@ -63,5 +70,11 @@ public class BoardKeyBindings {
 		addKeyBinding("control N", e -> new NewGameDialog(bp.parent));
 		addKeyBinding("control S", e -> bp.solveBoard());
 		addKeyBinding("control C", e -> bp.checkBoard());
+		addKeyBinding("control L", e -> bp.toggleLiveCheck());
+		addKeyBinding("ESCAPE", e -> bp.cancelTask());
+		addKeyBinding("control H", e -> bp.showHint());
+		addKeyBinding("control P", e -> bp.togglePencilMarks());
+		addKeyBinding("control Z", e -> bp.undo());
+		addKeyBinding("control Y", e -> bp.redo());
 	}
 }
@@ -0,0 +1,105 @@
+package Sudoku;
+
+/**
+ * the geometry of a board whose boxes are boxSize cells wide:
+ * boxSize * boxSize rows, columns, boxes and digits (4x4, 9x9, 16x16 or 25x25).
+ * <p>
+ * holds the tables every algorithm walks- the cells of each unit and the
+ * peers of each cell- so that they are built once per size. shapes are
+ * immutable and shared (see of).
+ */
+final class BoardShape {
+	static final int MIN_BOX_SIZE = 2;
+	static final int MAX_BOX_SIZE = 5;
+
+	private static final BoardShape[] SHAPES = new BoardShape[MAX_BOX_SIZE + 1];
+
+	static {
+		for(int boxSize = MIN_BOX_SIZE; boxSize <= MAX_BOX_SIZE; boxSize++) {
+			SHAPES[boxSize] = new BoardShape(boxSize);
+		}
+	}
+
+	/** the classic 9x9 board */
+	static final BoardShape STANDARD = of(3);
+
+	/**
+	 * @param boxSize - the width (in cells) of a box (2-5)
+	 * @return - the shape of boards with that box size
+	 * @throws IllegalArgumentException - if boxSize is not supported
+	 */
+	static BoardShape of(int boxSize) {
+		if(boxSize < MIN_BOX_SIZE || boxSize > MAX_BOX_SIZE) {
+			throw new IllegalArgumentException("unsupported box size: " + boxSize);
+		}
+		return SHAPES[boxSize];
+	}
+
+	/** the width of a box */
+	final int boxSize;
+	/** the number of rows (and columns, boxes and digits) */
+	final int size;
+	/** the number of cells */
+	final int cells;
+	/** mask with a bit set for each of the digits 1-size */
+	final long allDigits;
+
+	/**
+	 * the cells of each unit: 0 to size - 1 are the rows, size to 2 * size - 1
+	 * the columns, and 2 * size to 3 * size - 1 the boxes
+	 */
+	final int[][] units;
+	/** the cells sharing a row, column or box with each cell */
+	final int[][] peers;
+
+	private BoardShape(int boxSize) {
+		this.boxSize = boxSize;
+		size = boxSize * boxSize;
+		cells = size * size;
+		allDigits = (1L << size) - 1;
+
+		units = new int[3 * size][size];
+		for(int i = 0; i < size; i++) {
+			for(int j = 0; j < size; j++) {
+				units[i][j] = i * size + j;
+				units[size + i][j] = j * size + i;
+				units[2 * size + i][j] = ((i / boxSize) * boxSize + j / boxSize) * size +
+				                         (i % boxSize) * boxSize + j % boxSize;
+			}
+		}
+
+		// each cell has (size - 1) peers in its row and column, plus the rest of its box
+		int peerCount = 2 * (size - 1) + (boxSize - 1) * (boxSize - 1);
+		peers = new int[cells][peerCount];
+		for(int cell = 0; cell < cells; cell++) {
+			int row = cell / size;
+			int col = cell % size;
+			int count = 0;
+			for(int other = 0; other < cells; other++) {
+				int r = other / size;
+				int c = other % size;
+				boolean sharesUnit = r == row || c == col || boxIndex(r, c) == boxIndex(row, col);
+				if(other != cell && sharesUnit) {
+					peers[cell][count++] = other;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - the index (left-to-right, top-to-bottom) of the box enclosing the cell
+	 */
+	int boxIndex(int row, int col) {
+		return (row / boxSize) * boxSize + col / boxSize;
+	}
+
+	/**
+	 * @param digit - a digit in the range 1-size
+	 * @return - the mask bit representing digit
+	 */
+	static long bit(int digit) {
+		return 1L << (digit - 1);
+	}
+}
@@ -0,0 +1,97 @@
+package Sudoku;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+import javax.swing.*;
+
+/**
+ * runs a long operation (a solve or a new game) on a copy of a board,
+ * off the event dispatch thread, so the window stays responsive whatever
+ * the operation costs.
+ * <p>
+ * progress is reported to the EDT as text ("Solving: 12,288 nodes"), and
+ * cancel(true) stops the operation at its next progress report. the finished
+ * copy is handed to onDone on the EDT- the board being shown is never touched
+ * by the worker, so the result is applied in one step (or not at all, if cancelled).
+ */
+class BoardWorker extends SwingWorker<SudokuBoard, String> implements ProgressListener {
+	/** an operation on a board, run by the worker thread */
+	interface Operation {
+		void run(SudokuBoard board);
+	}
+
+	private final SudokuBoard snapshot;
+	private final Operation operation;
+	private final String description;
+	private final Consumer<String> onProgress;
+	private final Consumer<SudokuBoard> onDone;
+
+	/**
+	 * @param board - the board to copy (must be called on the EDT)
+	 * @param description - what the operation is doing, for the progress text ("Solving")
+	 * @param operation - the operation to run on the copy
+	 * @param onProgress - shows the progress text (called on the EDT)
+	 * @param onDone - applies the finished copy (called on the EDT; never called if cancelled)
+	 */
+	BoardWorker(SudokuBoard board, String description, Operation operation,
+	            Consumer<String> onProgress, Consumer<SudokuBoard> onDone) {
+		this.snapshot = board.copy();
+		this.description = description;
+		this.operation = operation;
+		this.onProgress = onProgress;
+		this.onDone = onDone;
+	}
+
+	@Override
+	protected SudokuBoard doInBackground() {
+		snapshot.setProgressListener(this);
+		operation.run(snapshot);
+		snapshot.setProgressListener(null);
+		return snapshot;
+	}
+
+	/**
+	 * publishes the progress of the operation (on the worker thread)
+	 * @throws CancellationException - if the worker has been cancelled
+	 */
+	@Override
+	public void progress(String phase, int attempt, long work) {
+		if(isCancelled()) {
+			throw new CancellationException();
+		}
+		switch(phase) {
+			case "remove" :
+				publish(String.format("%s (attempt %d): %,d blanks", description, attempt, work));
+				break;
+			case "solve" :
+				publish(String.format("%s: %,d nodes", description, work));
+				break;
+			default :
+				publish(String.format("%s (attempt %d): %s", description, attempt, phase));
+		}
+	}
+
+	@Override
+	protected void process(List<String> chunks) {
+		if(!isCancelled()) {
+			onProgress.accept(chunks.get(chunks.size() - 1)); // only the latest report matters
+		}
+	}
+
+	@Override
+	protected void done() {
+		if(isCancelled()) {
+			onProgress.accept(description + " cancelled");
+			return;
+		}
+		try {
+			onDone.accept(get());
+			onProgress.accept(" ");
+		} catch(InterruptedException | ExecutionException e) {
+			onProgress.accept(description + " failed: " + e.getCause());
+		}
+	}
+}
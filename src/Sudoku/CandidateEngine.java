@@ -0,0 +1,103 @@
+package Sudoku;
+
+/**
+ * keeps track of which digits are used in each row, column and box
+ * of a board using occupancy masks (bit (d - 1) set = digit d
+ * is present in that unit). a long holds the masks of boards of up
+ * to 25x25.
+ * <p>
+ * the masks are updated as digits are placed and removed, so
+ * checking whether a digit may legally go in a cell, or listing
+ * all of a cell's candidates, costs a couple of bitwise operations
+ * and never allocates.
+ * <p>
+ * the engine assumes that no unit ever holds the same digit twice
+ * (which is true for every board built by the generator and solver).
+ */
+class CandidateEngine {
+	private final BoardShape shape;
+
+	private final long[] rowMasks;
+	private final long[] colMasks;
+	private final long[] boxMasks;
+
+	/**
+	 * @param shape - the shape of the boards to track
+	 */
+	CandidateEngine(BoardShape shape) {
+		this.shape = shape;
+		rowMasks = new long[shape.size];
+		colMasks = new long[shape.size];
+		boxMasks = new long[shape.size];
+	}
+
+	/** creates an engine for 9x9 boards */
+	CandidateEngine() {
+		this(BoardShape.STANDARD);
+	}
+
+	/** removes every digit from the engine */
+	void clear() {
+		for(int i = 0; i < shape.size; i++) {
+			rowMasks[i] = 0;
+			colMasks[i] = 0;
+			boxMasks[i] = 0;
+		}
+	}
+
+	/**
+	 * records digit as placed at (row, col)
+	 * @param digit - the digit (1-size) being placed
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 */
+	void place(int digit, int row, int col) {
+		long b = BoardShape.bit(digit);
+		rowMasks[row] |= b;
+		colMasks[col] |= b;
+		boxMasks[shape.boxIndex(row, col)] |= b;
+	}
+
+	/**
+	 * records digit as removed from (row, col)
+	 * @param digit - the digit (1-size) being removed
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 */
+	void remove(int digit, int row, int col) {
+		long b = ~BoardShape.bit(digit);
+		rowMasks[row] &= b;
+		colMasks[col] &= b;
+		boxMasks[shape.boxIndex(row, col)] &= b;
+	}
+
+	/**
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - a mask of the digits that are not yet used by any unit containing (row, col)
+	 */
+	long candidates(int row, int col) {
+		return ~(rowMasks[row] | colMasks[col] | boxMasks[shape.boxIndex(row, col)]) & shape.allDigits;
+	}
+
+	/**
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - the number of digits that could legally be placed at (row, col)
+	 */
+	int candidateCount(int row, int col) {
+		return Long.bitCount(candidates(row, col));
+	}
+
+	/**
+	 * checks if digit can be placed at (row, col) without sharing
+	 * a row, column or box with the same digit
+	 * @param digit - the digit (1-size) in question
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - is the placement legal?
+	 */
+	boolean canPlace(int digit, int row, int col) {
+		return (candidates(row, col) & BoardShape.bit(digit)) != 0;
+	}
+}
@@ -0,0 +1,125 @@
+package Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * the pencil marks of a board: for every blank cell, a mask of the digits
+ * not yet used in its row, column or box (bit d - 1 set = digit d is still
+ * possible), less any candidates eliminated by hints.
+ * <p>
+ * the masks are kept up to date incrementally- placing or clearing a digit
+ * recomputes only the cell and its peers, each from the ConflictTracker's
+ * per-unit digit masks- so asking for a cell's candidates never rescans the board.
+ */
+class CandidateGrid {
+	private final BoardShape shape;
+	private final ConflictTracker conflicts;
+
+	/** the digit in each cell (0 = blank) */
+	private final int[] digits;
+	/** the candidates of each cell (0 for filled cells) */
+	private final long[] candidates;
+	/**
+	 * candidates eliminated by logic (see exclude), kept out of the masks
+	 * until a digit is cleared or changed (which may make them possible again)
+	 */
+	private final long[] excluded;
+	/** has anything been excluded since the exclusions were last cleared? */
+	private boolean hasExclusions;
+
+	/**
+	 * @param shape - the shape of the board
+	 * @param conflicts - the board's conflict tracker, which must be updated
+	 * before each change is passed on to the grid
+	 */
+	CandidateGrid(BoardShape shape, ConflictTracker conflicts) {
+		this.shape = shape;
+		this.conflicts = conflicts;
+		digits = new int[shape.cells];
+		candidates = new long[shape.cells];
+		excluded = new long[shape.cells];
+	}
+
+	/**
+	 * rebuilds every mask (forgetting any exclusions)
+	 * @param board - the board's digits (0 = blank)
+	 */
+	void load(int[][] board) {
+		for(int cell = 0; cell < shape.cells; cell++) {
+			digits[cell] = board[cell / shape.size][cell % shape.size];
+			excluded[cell] = 0;
+		}
+		hasExclusions = false;
+		for(int cell = 0; cell < shape.cells; cell++) {
+			recompute(cell);
+		}
+	}
+
+	private void recompute(int cell) {
+		if(digits[cell] != 0) {
+			candidates[cell] = 0;
+		} else {
+			long used = conflicts.getUsedDigits(cell / shape.size, cell % shape.size);
+			candidates[cell] = shape.allDigits & ~used & ~excluded[cell];
+		}
+	}
+
+	/**
+	 * records a digit placed at (or cleared from) (row, col), updating the
+	 * candidates of the cell and its peers. clearing or changing a digit while
+	 * there are exclusions drops them all, and so recomputes every cell.
+	 * @param digit - the cell's new digit (0 = blank)
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 */
+	void set(int digit, int row, int col) {
+		int cell = row * shape.size + col;
+		if(digits[cell] == digit) {
+			return;
+		}
+		boolean dropExclusions = digits[cell] != 0 && hasExclusions; // they may have relied on the old digit
+		digits[cell] = digit;
+		if(dropExclusions) {
+			Arrays.fill(excluded, 0L);
+			hasExclusions = false;
+			for(int other = 0; other < shape.cells; other++) {
+				recompute(other);
+			}
+			return;
+		}
+		recompute(cell);
+		for(int peer : shape.peers[cell]) {
+			recompute(peer);
+		}
+	}
+
+	/**
+	 * @param cell - a cell index (row * size + col)
+	 * @return - the cell's candidates (0 if the cell is filled)
+	 */
+	long getCandidates(int cell) {
+		return candidates[cell];
+	}
+
+	/**
+	 * copies the digits and candidates of every cell
+	 * @param digitsOut - receives each cell's digit (0 = blank)
+	 * @param candidatesOut - receives each cell's candidates
+	 */
+	void copyTo(int[] digitsOut, long[] candidatesOut) {
+		System.arraycopy(digits, 0, digitsOut, 0, shape.cells);
+		System.arraycopy(candidates, 0, candidatesOut, 0, shape.cells);
+	}
+
+	/**
+	 * removes candidates that logic has ruled out (e.g. by a hint)
+	 * @param eliminations - for each cell, a mask of the candidates to remove
+	 */
+	void exclude(long[] eliminations) {
+		for(int cell = 0; cell < shape.cells; cell++) {
+			excluded[cell] |= eliminations[cell];
+			candidates[cell] &= ~eliminations[cell];
+			hasExclusions |= eliminations[cell] != 0;
+		}
+	}
+}
@@ -0,0 +1,224 @@
+package Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * maps a puzzle to the canonical member of its symmetry class: of every grid
+ * reachable by relabelling the digits, reordering the rows within a band,
+ * reordering the bands, the same for columns and stacks, and transposing
+ * (see SymmetryTransforms), the one whose digits (row-major, blanks as 0)
+ * are lexicographically smallest. two puzzles are the same puzzle in
+ * disguise exactly when their canonical forms are equal.
+ * <p>
+ * a 9x9 puzzle has about 3.3 million geometric transforms (the relabelling
+ * needs no search- numbering the digits in order of first appearance gives
+ * the smallest one). rather than trying them all, the search builds the
+ * output a cell at a time, in row-major order: the columns are chosen while
+ * row 0 is built, then the rows one by one, and a branch is dropped as soon
+ * as its prefix is greater than the best grid found so far.
+ * <p>
+ * an instance is not thread-safe, and serves puzzles of one shape.
+ */
+class Canonicalizer {
+	private final BoardShape shape;
+	private final int boxSize;
+	private final int size;
+
+	/** the puzzle being canonicalized (transposed, on the second pass) */
+	private final int[] source;
+	/** the grid being built, and the smallest one built so far */
+	private final int[] output;
+	private final int[] best;
+	/** counts the times best is replaced (see placeColumn) */
+	private int improvements;
+
+	/** output row r comes from source row rowOrder[r] (and likewise columns) */
+	private final int[] rowOrder;
+	private final int[] colOrder;
+	private final boolean[] rowUsed;
+	private final boolean[] colUsed;
+	private final boolean[] bandUsed;
+	private final boolean[] stackUsed;
+
+	/** each source digit's label in the output (0 = not yet seen) */
+	private final int[] relabel;
+	/** the source digit first labelled at each output cell (0 if none), to undo it */
+	private final int[] labelledAt;
+	private int nextLabel;
+
+	/**
+	 * @param shape - the shape of the puzzles to canonicalize
+	 */
+	Canonicalizer(BoardShape shape) {
+		this.shape = shape;
+		boxSize = shape.boxSize;
+		size = shape.size;
+		source = new int[shape.cells];
+		output = new int[shape.cells];
+		best = new int[shape.cells];
+		rowOrder = new int[size];
+		colOrder = new int[size];
+		rowUsed = new boolean[size];
+		colUsed = new boolean[size];
+		bandUsed = new boolean[boxSize];
+		stackUsed = new boolean[boxSize];
+		relabel = new int[size + 1];
+		labelledAt = new int[shape.cells];
+	}
+
+	/** @return - the shape of the puzzles the canonicalizer serves */
+	BoardShape getShape() {
+		return shape;
+	}
+
+	/**
+	 * @param cells - a puzzle's digits in row-major order (0 = blank)
+	 * @param canonical - receives the canonical form of the puzzle (may be cells)
+	 */
+	void canonicalize(int[] cells, int[] canonical) {
+		Arrays.fill(best, Integer.MAX_VALUE);
+		for(int pass = 0; pass < 2; pass++) {
+			boolean transpose = pass == 1;
+			for(int r = 0; r < size; r++) {
+				for(int c = 0; c < size; c++) {
+					source[r * size + c] = transpose ? cells[c * size + r] : cells[r * size + c];
+				}
+			}
+			for(int row = 0; row < size; row++) {
+				rowOrder[0] = row;
+				rowUsed[row] = true;
+				bandUsed[row / boxSize] = true;
+				placeColumn(0, false);
+				bandUsed[row / boxSize] = false;
+				rowUsed[row] = false;
+			}
+		}
+		System.arraycopy(best, 0, canonical, 0, shape.cells);
+	}
+
+	/**
+	 * @param puzzle - a puzzle (only its givens are looked at)
+	 * @return - the canonical form of the puzzle's givens (every digit a given)
+	 */
+	Grid canonicalize(Grid puzzle) {
+		int[] cells = puzzle.withoutEntries().getCells();
+		canonicalize(cells, cells);
+		return Grid.of(shape, cells);
+	}
+
+	/**
+	 * @param cells - a puzzle's digits in row-major order (0 = blank)
+	 * @return - the hash of the puzzle's canonical form: the same for every
+	 * puzzle in its symmetry class
+	 */
+	GridHash canonicalHash(int[] cells) {
+		int[] canonical = new int[shape.cells];
+		canonicalize(cells, canonical);
+		return GridHash.of(Grid.of(shape, canonical));
+	}
+
+	/**
+	 * labels the source digit at an output cell, numbering digits in order of first appearance
+	 * @return - the digit's label (0 for a blank)
+	 */
+	private int label(int cell, int digit) {
+		if(digit != 0 && relabel[digit] == 0) {
+			relabel[digit] = ++nextLabel;
+			labelledAt[cell] = digit;
+		}
+		return relabel[digit];
+	}
+
+	/** undoes label(cell, ...) */
+	private void unlabel(int cell) {
+		if(labelledAt[cell] != 0) {
+			relabel[labelledAt[cell]] = 0;
+			labelledAt[cell] = 0;
+			nextLabel--;
+		}
+	}
+
+	/**
+	 * chooses the source column of output column c (and so builds output row 0),
+	 * then the columns after it, and then the rows
+	 * @param less - is the output so far smaller than best's start (so nothing can be pruned)?
+	 * once a branch replaces best, the output so far is best's start, and no longer smaller.
+	 */
+	private void placeColumn(int c, boolean less) {
+		if(c == size) {
+			placeRow(1, less);
+			return;
+		}
+		// the first column of a stack can come from any unused stack, the rest from the same stack
+		boolean newStack = c % boxSize == 0;
+		int first = newStack ? 0 : colOrder[c - 1] / boxSize * boxSize;
+		int last = newStack ? size : first + boxSize;
+		for(int col = first; col < last; col++) {
+			if(colUsed[col] || (newStack && stackUsed[col / boxSize])) {
+				continue;
+			}
+			int value = label(c, source[rowOrder[0] * size + col]);
+			if(less || value <= best[c]) {
+				output[c] = value;
+				colOrder[c] = col;
+				colUsed[col] = true;
+				stackUsed[col / boxSize] = true;
+				int before = improvements;
+				placeColumn(c + 1, less || value < best[c]);
+				less &= improvements == before;
+				stackUsed[col / boxSize] = !newStack;
+				colUsed[col] = false;
+			}
+			unlabel(c);
+		}
+	}
+
+	/**
+	 * chooses the source row of output row r (the columns are already
+	 * chosen), then the rows after it
+	 * @param less - is the output so far smaller than best's start?
+	 */
+	private void placeRow(int r, boolean less) {
+		if(r == size) {
+			if(less) {
+				System.arraycopy(output, 0, best, 0, shape.cells);
+				improvements++;
+			}
+			return;
+		}
+		boolean newBand = r % boxSize == 0;
+		int first = newBand ? 0 : rowOrder[r - 1] / boxSize * boxSize;
+		int last = newBand ? size : first + boxSize;
+		for(int row = first; row < last; row++) {
+			if(rowUsed[row] || (newBand && bandUsed[row / boxSize])) {
+				continue;
+			}
+			// build the row, stopping at the first cell greater than best's
+			boolean rowLess = less;
+			int c = 0;
+			for(; c < size; c++) {
+				int cell = r * size + c;
+				int value = label(cell, source[row * size + colOrder[c]]);
+				if(!rowLess && value > best[cell]) {
+					unlabel(cell);
+					break;
+				}
+				rowLess |= value < best[cell];
+				output[cell] = value;
+			}
+			if(c == size) {
+				rowOrder[r] = row;
+				rowUsed[row] = true;
+				bandUsed[row / boxSize] = true;
+				int before = improvements;
+				placeRow(r + 1, rowLess);
+				less &= improvements == before;
+				bandUsed[row / boxSize] = !newBand;
+				rowUsed[row] = false;
+			}
+			while(c > 0) {
+				unlabel(r * size + --c);
+			}
+		}
+	}
+}
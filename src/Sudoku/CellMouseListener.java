@@ -1,27 +1,60 @@
 package Sudoku;
 
-import java.awt.*;
 import java.awt.event.*;
 
-import javax.swing.*;
-
-public class CellMouseListener implements MouseListener {
-	private static boolean mouseButtonDown = false;
+/**
+ * selects cells of a BoardPanel with the mouse: pressing selects the cell
+ * under the pointer, dragging selects every cell passed over, clicking selects
+ * only the clicked cell (or deselects everything if it was already selected),
+ * and control-clicking adds a cell to the selection.
+ * <p>
+ * one listener serves the whole board- the cell under the pointer
+ * is worked out from the event's coordinates.
+ */
+public class CellMouseListener extends MouseAdapter {
+	private boolean mouseButtonDown = false;
 
 	private BoardPanel boardPanel;
-	private int row;
-	private int col;
+	/** the cell under the pointer (-1 when the pointer is off the grid) */
+	private int row = -1;
+	private int col = -1;
+	/** was the cell under the pointer selected when the pointer reached it? */
 	private boolean wasSelected;
 
 	
-	CellMouseListener(BoardPanel parent, int r, int c) {
+	CellMouseListener(BoardPanel parent) {
 		boardPanel = parent;
+	}
+
+	/**
+	 * tracks the cell under the pointer
+	 * @return - has the pointer moved onto a new cell?
+	 */
+	private boolean moveTo(MouseEvent e) {
+		int r = boardPanel.rowAt(e.getY());
+		int c = boardPanel.colAt(e.getX());
+		if(r < 0 || c < 0) {
+			r = -1;
+			c = -1;
+		}
+		if(r == row && c == col) {
+			return false;
+		}
 		row = r;
 		col = c;
+		if(row < 0) {
+			return false;
+		}
+		wasSelected = boardPanel.isSelected(row, col);
+		return true;
 	}
 
 	@Override
 	public void mouseClicked(MouseEvent e) {
+		moveTo(e);
+		if(row < 0) {
+			return;
+		}
 		if(e.isControlDown()) {
 			boardPanel.setSelected(row, col);
 			return;
@@ -33,15 +66,17 @@ public class CellMouseListener implements MouseListener {
 			boardPanel.setSelected(row,  col);
 		}
 
-		boardPanel.update();
 		wasSelected = !wasSelected;
 	}
 
 	@Override
 	public void mousePressed(MouseEvent e) {
+		moveTo(e);
+		if(row < 0) {
+			return;
+		}
 		mouseButtonDown = true;
 		boardPanel.setSelected(row, col);
-		boardPanel.update(row, col);
 	}
 
 	@Override
@@ -50,15 +85,20 @@ public class CellMouseListener implements MouseListener {
 	}
 
 	@Override
-	public void mouseEntered(MouseEvent e) {
-		wasSelected = boardPanel.isSelected(row, col);
-		if(mouseButtonDown) {
+	public void mouseMoved(MouseEvent e) {
+		moveTo(e);
+	}
+
+	@Override
+	public void mouseDragged(MouseEvent e) {
+		if(moveTo(e) && mouseButtonDown) {
 			boardPanel.setSelected(row, col);
-			boardPanel.update(row, col);
 		}
 	}
 
 	@Override
 	public void mouseExited(MouseEvent e) {
+		row = -1;
+		col = -1;
 	}
 }
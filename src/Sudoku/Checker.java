@@ -0,0 +1,74 @@
+package Sudoku;
+
+/**
+ * checks grids against the rules: which cells hold a digit that shares its
+ * row, column or box with the same digit.
+ * <p>
+ * stateless- every call works on a tracker of its own, so any number of
+ * threads can check grids at once.
+ * <p>
+ * each call of check is reported as a CheckEvent and added to SudokuMetrics,
+ * as SudokuBoard.check is.
+ */
+final class Checker {
+	private Checker() {
+	}
+
+	/** @return - a tracker holding every digit of grid */
+	private static ConflictTracker track(Grid grid) {
+		ConflictTracker conflicts = new ConflictTracker(grid.getShape());
+		int size = grid.getSize();
+		for(int cell = 0; cell < grid.getShape().cells; cell++) {
+			conflicts.place(grid.getDigit(cell), cell / size, cell % size);
+		}
+		return conflicts;
+	}
+
+	/**
+	 * @param grid - the grid to check
+	 * @return - each cell's validity, row-major (true = no conflict; blanks are always valid)
+	 */
+	static boolean[] check(Grid grid) {
+		long start = System.nanoTime();
+		CheckEvent event = new CheckEvent();
+		event.begin();
+		ConflictTracker conflicts = track(grid);
+		int size = grid.getSize();
+		boolean[] valid = new boolean[grid.getShape().cells];
+		for(int cell = 0; cell < valid.length; cell++) {
+			valid[cell] = !conflicts.isConflicting(grid.getDigit(cell), cell / size, cell % size);
+			if(!valid[cell]) {
+				event.conflicts++;
+			}
+		}
+
+		event.boxSize = grid.getShape().boxSize;
+		event.validityChecks = valid.length;
+		event.commit();
+		SudokuMetrics.INSTANCE.recordCheck(event, System.nanoTime() - start);
+		return valid;
+	}
+
+	/**
+	 * @param grid - the grid to check
+	 * @return - does any cell conflict with another?
+	 */
+	static boolean hasConflicts(Grid grid) {
+		ConflictTracker conflicts = track(grid);
+		int size = grid.getSize();
+		for(int cell = 0; cell < grid.getShape().cells; cell++) {
+			if(conflicts.isConflicting(grid.getDigit(cell), cell / size, cell % size)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param grid - the grid to check
+	 * @return - is every cell filled, without conflicts?
+	 */
+	static boolean isSolved(Grid grid) {
+		return grid.countBlanks() == 0 && !hasConflicts(grid);
+	}
+}
@@ -0,0 +1,132 @@
+package Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * counts how many times each digit appears in each row, column and box
+ * of a board, so that whether a cell collides with another cell holding
+ * the same digit can be answered without scanning the board.
+ * <p>
+ * unlike CandidateEngine, the counts stay correct when a unit holds
+ * the same digit several times (as a player's guesses often do).
+ * placing or removing a digit updates three counters.
+ * <p>
+ * the digits present in each unit are also kept as masks, so the
+ * candidates of a cell (see CandidateGrid) are three ORs away.
+ */
+class ConflictTracker {
+	private final BoardShape shape;
+	/** the number of counters per unit (one per digit, plus an unused one for 0) */
+	private final int stride;
+
+	/**
+	 * the count of digit d in unit u is stored at u * stride + d
+	 * (units 0 to size - 1 are the rows, then the columns, then the boxes)
+	 */
+	private final byte[] counts;
+	/** for each unit, a mask of the digits it holds at least once (bit d - 1 = digit d) */
+	private final long[] present;
+
+	/**
+	 * @param shape - the shape of the boards to track
+	 */
+	ConflictTracker(BoardShape shape) {
+		this.shape = shape;
+		stride = shape.size + 1;
+		counts = new byte[3 * shape.size * stride];
+		present = new long[3 * shape.size];
+	}
+
+	/** creates a tracker for 9x9 boards */
+	ConflictTracker() {
+		this(BoardShape.STANDARD);
+	}
+
+	private int rowUnit(int row) {
+		return row;
+	}
+
+	private int colUnit(int col) {
+		return shape.size + col;
+	}
+
+	private int boxUnit(int row, int col) {
+		return 2 * shape.size + shape.boxIndex(row, col);
+	}
+
+	/** forgets every digit */
+	void clear() {
+		Arrays.fill(counts, (byte) 0);
+		Arrays.fill(present, 0L);
+	}
+
+	/** counts digit in unit */
+	private void add(int unit, int digit) {
+		if(counts[unit * stride + digit]++ == 0) {
+			present[unit] |= BoardShape.bit(digit);
+		}
+	}
+
+	/** uncounts digit in unit */
+	private void subtract(int unit, int digit) {
+		if(--counts[unit * stride + digit] == 0) {
+			present[unit] &= ~BoardShape.bit(digit);
+		}
+	}
+
+	/**
+	 * records digit as placed at (row, col)
+	 * @param digit - the digit placed (0 is ignored)
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 */
+	void place(int digit, int row, int col) {
+		if(digit == 0) {
+			return;
+		}
+		add(rowUnit(row), digit);
+		add(colUnit(col), digit);
+		add(boxUnit(row, col), digit);
+	}
+
+	/**
+	 * records digit as removed from (row, col)
+	 * @param digit - the digit removed (0 is ignored)
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 */
+	void remove(int digit, int row, int col) {
+		if(digit == 0) {
+			return;
+		}
+		subtract(rowUnit(row), digit);
+		subtract(colUnit(col), digit);
+		subtract(boxUnit(row, col), digit);
+	}
+
+	/**
+	 * checks if digit, sitting at (row, col), shares a row, column or box
+	 * with another cell holding the same digit
+	 * @param digit - the digit at (row, col) (0 never conflicts)
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - does the cell conflict with another?
+	 */
+	boolean isConflicting(int digit, int row, int col) {
+		if(digit == 0) {
+			return false;
+		}
+		return counts[rowUnit(row) * stride + digit] > 1 ||
+		       counts[colUnit(col) * stride + digit] > 1 ||
+		       counts[boxUnit(row, col) * stride + digit] > 1;
+	}
+
+	/**
+	 * @param row - a cell's row (in the board)
+	 * @param col - a cell's column (in the board)
+	 * @return - a mask of the digits held anywhere in the cell's row, column or box
+	 */
+	long getUsedDigits(int row, int col) {
+		return present[rowUnit(row)] | present[colUnit(col)] | present[boxUnit(row, col)];
+	}
+}
@@ -0,0 +1,506 @@
+package Sudoku;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.LongConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * solves boards by treating Sudoku as an exact cover problem
+ * and running Knuth's Algorithm X over "dancing links".
+ * <p>
+ * every (cell, digit) pair is a row of the cover matrix, and
+ * satisfies four constraint columns: the cell is filled, the digit
+ * appears in the row, in the column and in the box. all nodes are
+ * kept in preallocated int arrays (left/right/up/down links), so a
+ * solver instance can be reused for any number of boards without
+ * allocating.
+ * <p>
+ * an instance is not thread-safe- each thread needs its own solver.
+ */
+class DancingLinksSolver {
+	private final BoardShape shape;
+	/** one column per cell, and per (digit, row), (digit, column) and (digit, box) */
+	private final int columns;
+	/** one row per (cell, digit) */
+	private final int rows;
+
+	/** node 0 is the root, nodes 1 to columns are the column headers, the rest belong to rows */
+	private static final int ROOT = 0;
+	private final int firstRowNode;
+
+	private final int[] left;
+	private final int[] right;
+	private final int[] up;
+	private final int[] down;
+	/** the column header each node belongs to */
+	private final int[] header;
+	/** the number of rows remaining in each column (indexed by header node) */
+	private final int[] size;
+
+	/** the first node of the row chosen at each search depth */
+	private final int[] chosenRows;
+
+	/**
+	 * the links and column sizes of the complete matrix, built once and
+	 * copied back by reset() (much cheaper than relinking node by node)
+	 */
+	private final int[] initialLeft;
+	private final int[] initialRight;
+	private final int[] initialUp;
+	private final int[] initialDown;
+	private final int[] initialSize;
+
+	/** the cells being solved (row-major, 0 = blank) */
+	private int[] cells;
+	/** should search() copy the first solution it finds into cells? */
+	private boolean writeSolution;
+	/** search() stops once this many solutions have been found */
+	private int solutionLimit;
+	private int solutionsFound;
+	/** search() gives up (as though solutionLimit had been reached) after this many steps */
+	private long stepLimit;
+	private long steps;
+	/** rows chosen by search() that led to no solution */
+	private long backtracks;
+	/** search() reports its step count to this every PROGRESS_INTERVAL steps (null = no reports) */
+	private LongConsumer progressListener;
+	static final long PROGRESS_INTERVAL = 1 << 12;
+
+	/**
+	 * @param shape - the shape of the boards to solve
+	 */
+	DancingLinksSolver(BoardShape shape) {
+		this.shape = shape;
+		columns = 4 * shape.cells;
+		rows = shape.size * shape.cells;
+		firstRowNode = columns + 1;
+
+		int nodes = firstRowNode + rows * 4;
+		left = new int[nodes];
+		right = new int[nodes];
+		up = new int[nodes];
+		down = new int[nodes];
+		header = new int[nodes];
+		size = new int[columns + 1];
+		chosenRows = new int[shape.cells];
+
+		link();
+		initialLeft = left.clone();
+		initialRight = right.clone();
+		initialUp = up.clone();
+		initialDown = down.clone();
+		initialSize = size.clone();
+	}
+
+	/** creates a solver for 9x9 boards */
+	DancingLinksSolver() {
+		this(BoardShape.STANDARD);
+	}
+
+	/**
+	 * @param row - a row of the cover matrix
+	 * @return - the first of the row's four nodes
+	 */
+	private int firstNodeOf(int row) {
+		return firstRowNode + row * 4;
+	}
+
+	/**
+	 * @param node - any node belonging to a row
+	 * @return - the row of the cover matrix that node belongs to
+	 */
+	private int rowOf(int node) {
+		return (node - firstRowNode) / 4;
+	}
+
+	/**
+	 * appends node to the bottom of the column headed by columnHeader
+	 */
+	private void linkToColumn(int node, int columnHeader) {
+		header[node] = columnHeader;
+		up[node] = up[columnHeader];
+		down[node] = columnHeader;
+		down[up[columnHeader]] = node;
+		up[columnHeader] = node;
+		size[columnHeader]++;
+	}
+
+	/**
+	 * relinks the whole cover matrix, undoing any previous search
+	 */
+	private void reset() {
+		System.arraycopy(initialLeft, 0, left, 0, left.length);
+		System.arraycopy(initialRight, 0, right, 0, right.length);
+		System.arraycopy(initialUp, 0, up, 0, up.length);
+		System.arraycopy(initialDown, 0, down, 0, down.length);
+		System.arraycopy(initialSize, 0, size, 0, size.length);
+	}
+
+	/**
+	 * builds the complete cover matrix: a row per (cell, digit), and the
+	 * header list of every column
+	 */
+	private void link() {
+		for(int h = ROOT; h <= columns; h++) {
+			left[h] = h - 1;
+			right[h] = h + 1;
+			up[h] = h;
+			down[h] = h;
+			size[h] = 0;
+		}
+		left[ROOT] = columns;
+		right[columns] = ROOT;
+
+		int n = shape.size;
+		int cells = shape.cells;
+		for(int row = 0; row < rows; row++) {
+			int cell = row / n;
+			int digit = row % n;
+			int r = cell / n;
+			int c = cell % n;
+			int first = firstNodeOf(row);
+
+			linkToColumn(first, 1 + cell);
+			linkToColumn(first + 1, 1 + cells + r * n + digit);
+			linkToColumn(first + 2, 1 + 2 * cells + c * n + digit);
+			linkToColumn(first + 3, 1 + 3 * cells + shape.boxIndex(r, c) * n + digit);
+
+			for(int i = 0; i < 4; i++) {
+				left[first + i] = first + (i + 3) % 4;
+				right[first + i] = first + (i + 1) % 4;
+			}
+		}
+	}
+
+	/**
+	 * removes a column from the header list, and each of its rows from the other columns
+	 */
+	private void cover(int columnHeader) {
+		right[left[columnHeader]] = right[columnHeader];
+		left[right[columnHeader]] = left[columnHeader];
+		for(int i = down[columnHeader]; i != columnHeader; i = down[i]) {
+			for(int j = right[i]; j != i; j = right[j]) {
+				up[down[j]] = up[j];
+				down[up[j]] = down[j];
+				size[header[j]]--;
+			}
+		}
+	}
+
+	/**
+	 * exactly reverses cover(columnHeader)
+	 */
+	private void uncover(int columnHeader) {
+		for(int i = up[columnHeader]; i != columnHeader; i = up[i]) {
+			for(int j = left[i]; j != i; j = left[j]) {
+				size[header[j]]++;
+				up[down[j]] = j;
+				down[up[j]] = j;
+			}
+		}
+		right[left[columnHeader]] = columnHeader;
+		left[right[columnHeader]] = columnHeader;
+	}
+
+	/**
+	 * @return - has the column been covered (removed from the header list)?
+	 */
+	private boolean isCovered(int columnHeader) {
+		return right[left[columnHeader]] != columnHeader;
+	}
+
+	/**
+	 * relinks the matrix and selects the row of every given digit in cells
+	 * @return - false if two of the given digits collide
+	 */
+	private boolean loadGivens() {
+		reset();
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(cells[cell] == 0) {
+				continue;
+			}
+			int first = firstNodeOf(cell * shape.size + cells[cell] - 1);
+			for(int i = first; i < first + 4; i++) {
+				if(isCovered(header[i])) { // another given already satisfies this constraint
+					return false;
+				}
+			}
+			for(int i = first; i < first + 4; i++) {
+				cover(header[i]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return - the uncovered column with the fewest remaining rows
+	 */
+	private int chooseColumn() {
+		int best = right[ROOT];
+		for(int h = right[best]; h != ROOT; h = right[h]) {
+			if(size[h] < size[best]) {
+				best = h;
+				if(size[h] <= 1) {
+					break;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Algorithm X- recursively covers the most constrained column
+	 * with each of its rows, until every column is covered or
+	 * solutionLimit complete covers have been found (or stepLimit steps taken).
+	 * if writeSolution is set, the first complete cover is written into cells.
+	 * @param depth - the number of rows chosen so far
+	 */
+	private void search(int depth) {
+		if(++steps > stepLimit) {
+			solutionsFound = solutionLimit;
+			return;
+		}
+		if(progressListener != null && (steps & (PROGRESS_INTERVAL - 1)) == 0) {
+			progressListener.accept(steps);
+		}
+		if(right[ROOT] == ROOT) { // every constraint satisfied
+			if(writeSolution && solutionsFound == 0) {
+				for(int d = 0; d < depth; d++) {
+					int row = rowOf(chosenRows[d]);
+					cells[row / shape.size] = row % shape.size + 1;
+				}
+			}
+			solutionsFound++;
+			return;
+		}
+
+		int columnHeader = chooseColumn();
+		if(size[columnHeader] == 0) { // dead end
+			return;
+		}
+
+		cover(columnHeader);
+		for(int r = down[columnHeader]; r != columnHeader && solutionsFound < solutionLimit; r = down[r]) {
+			chosenRows[depth] = r;
+			for(int j = right[r]; j != r; j = right[j]) {
+				cover(header[j]);
+			}
+			int solutionsBefore = solutionsFound;
+			search(depth + 1);
+			if(solutionsFound == solutionsBefore) {
+				backtracks++;
+			}
+			for(int j = left[r]; j != r; j = left[j]) {
+				uncover(header[j]);
+			}
+		}
+		uncover(columnHeader);
+	}
+
+	/**
+	 * fills in every blank of cells with the digits of a solution
+	 * @param cells - the board's digits in row-major order (0 = blank); overwritten with the solution
+	 * @return - was a solution found? (if not, cells is left unchanged)
+	 */
+	boolean solve(int[] cells) {
+		this.cells = cells;
+		solutionLimit = 1;
+		solutionsFound = 0;
+		steps = 0;
+		backtracks = 0;
+		stepLimit = Long.MAX_VALUE;
+		writeSolution = true;
+		if(loadGivens()) {
+			search(0);
+		}
+		return solutionsFound > 0;
+	}
+
+	/**
+	 * counts the solutions of cells, giving up once limit have been found
+	 * (countSolutions(cells, 2) == 1 proves that a puzzle is unique)
+	 * @param cells - the board's digits in row-major order (0 = blank); not modified
+	 * @param limit - the number of solutions at which to stop searching
+	 * @return - the number of solutions, at most limit
+	 */
+	int countSolutions(int[] cells, int limit) {
+		return countSolutions(cells, limit, Long.MAX_VALUE);
+	}
+
+	/**
+	 * counts the solutions of cells like countSolutions(cells, limit), but gives
+	 * up after maxSteps search steps and reports limit solutions- so a result
+	 * below limit is always exact, and a puzzle is never wrongly called unique.
+	 * (proving uniqueness of a sparse 25x25 puzzle can take a very long search)
+	 * @param cells - the board's digits in row-major order (0 = blank); not modified
+	 * @param limit - the number of solutions at which to stop searching
+	 * @param maxSteps - the number of search steps after which to give up
+	 * @return - the number of solutions, at most limit
+	 */
+	int countSolutions(int[] cells, int limit, long maxSteps) {
+		this.cells = cells;
+		solutionLimit = limit;
+		solutionsFound = 0;
+		steps = 0;
+		backtracks = 0;
+		stepLimit = maxSteps;
+		writeSolution = false;
+		if(loadGivens()) {
+			search(0);
+		}
+		return solutionsFound;
+	}
+
+	/**
+	 * @param listener - receives the number of search steps taken, every PROGRESS_INTERVAL
+	 * steps of each solve or count (null = no reports). it may abandon the search by
+	 * throwing an unchecked exception- the next solve or count starts from a fresh matrix.
+	 */
+	void setProgressListener(LongConsumer listener) {
+		progressListener = listener;
+	}
+
+	/** @return - the number of search steps (nodes visited) taken by the last solve or count */
+	long getSteps() {
+		return Math.min(steps, stepLimit);
+	}
+
+	/** @return - the number of choices the last solve or count undid after they led nowhere */
+	long getBacktracks() {
+		return backtracks;
+	}
+
+	/** @return - did the last count give up at its step limit? */
+	boolean wasAbandoned() {
+		return steps > stepLimit;
+	}
+
+	/**
+	 * lists the solutions of a puzzle lazily: the search runs only as far as
+	 * the consumer pulls, so limit(n), findFirst() and closing the stream early
+	 * stop it with no further work. the search keeps an explicit stack (one
+	 * column and row per chosen row) instead of recursing, so it can be
+	 * paused between solutions.
+	 * <p>
+	 * the stream uses this solver's matrix until it is exhausted or closed- the
+	 * solver must not solve or count anything else in the meantime.
+	 * @param cells - the puzzle's digits in row-major order (0 = blank); not modified
+	 * @return - a stream of the puzzle's solutions, each a new array of its digits in
+	 * row-major order (empty if two of the given digits collide)
+	 */
+	Stream<int[]> solutions(int[] cells) {
+		if(cells.length != shape.cells) {
+			throw new IllegalArgumentException("expected " + shape.cells + " cells, got " + cells.length);
+		}
+		SolutionIterator iterator = new SolutionIterator(cells);
+		Spliterator<int[]> spliterator = Spliterators.spliteratorUnknownSize(iterator, 
+				Spliterator.ORDERED | Spliterator.DISTINCT | Spliterator.NONNULL);
+		return StreamSupport.stream(spliterator, false).onClose(iterator::close);
+	}
+
+	/**
+	 * Algorithm X (as in search()), run one solution at a time
+	 */
+	private class SolutionIterator implements Iterator<int[]> {
+		/** the column covered at each level of the search, and the row chosen from it */
+		private final int[] columnAt = new int[shape.cells];
+		private final int[] rowAt = new int[shape.cells];
+		/** the puzzle's digits */
+		private final int[] givens;
+		/** the number of rows chosen so far */
+		private int depth = 0;
+		/** is the search going down into a new level (rather than back up to depth - 1)? */
+		private boolean descending;
+		/** the solution found by hasNext() but not yet taken by next() */
+		private int[] pending;
+		private boolean finished;
+
+		SolutionIterator(int[] givens) {
+			this.givens = givens.clone();
+			cells = this.givens;
+			descending = loadGivens();
+			finished = !descending;
+		}
+
+		/**
+		 * resumes the search until the next solution
+		 * @return - the solution (null if there are no more)
+		 */
+		private int[] advance() {
+			while(true) {
+				if(descending) {
+					if(right[ROOT] == ROOT) { // every constraint satisfied
+						descending = false;
+						return solution();
+					}
+					int columnHeader = chooseColumn();
+					cover(columnHeader);
+					columnAt[depth] = columnHeader;
+					rowAt[depth] = columnHeader; // no row chosen yet
+				} else {
+					if(depth == 0) { // every row of the first column has been tried
+						return null;
+					}
+					depth--;
+					int r = rowAt[depth];
+					for(int j = left[r]; j != r; j = left[j]) {
+						uncover(header[j]);
+					}
+				}
+
+				// choose the column's next row
+				int r = down[rowAt[depth]];
+				if(r == columnAt[depth]) { // no rows left- back up a level
+					uncover(columnAt[depth]);
+					descending = false;
+					continue;
+				}
+				rowAt[depth] = r;
+				for(int j = right[r]; j != r; j = right[j]) {
+					cover(header[j]);
+				}
+				depth++;
+				descending = true;
+			}
+		}
+
+		/** @return - the givens, with the digits of the rows chosen so far filled in */
+		private int[] solution() {
+			int[] solution = givens.clone();
+			for(int d = 0; d < depth; d++) {
+				int row = rowOf(rowAt[d]);
+				solution[row / shape.size] = row % shape.size + 1;
+			}
+			return solution;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if(pending == null && !finished) {
+				pending = advance();
+				finished = pending == null;
+			}
+			return pending != null;
+		}
+
+		@Override
+		public int[] next() {
+			if(!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			int[] solution = pending;
+			pending = null;
+			return solution;
+		}
+
+		/** stops the search (the matrix is relinked by the solver's next solve or count) */
+		void close() {
+			finished = true;
+			pending = null;
+		}
+	}
+}
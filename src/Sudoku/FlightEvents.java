@@ -0,0 +1,150 @@
+package Sudoku;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/*
+ * JDK Flight Recorder events emitted by SudokuBoard, Generator, Solver and
+ * Checker. they cost next to nothing unless a recording is running, e.g.
+ *   java -XX:StartFlightRecording=filename=sudoku.jfr -jar sudoku.jar
+ * and are shown under "Sudoku" in JDK Mission Control (or by
+ *   jfr print --events Sudoku.Generation sudoku.jfr).
+ */
+
+/**
+ * one call of newBoard: the time spent in each phase (summed over
+ * every attempt), and the work the phases did
+ */
+@Name("Sudoku.Generation")
+@Label("Board Generation")
+@Category("Sudoku")
+class GenerationEvent extends Event {
+	@Label("Difficulty")
+	String difficulty;
+
+	@Label("Box Size")
+	int boxSize;
+
+	@Label("Seed")
+	@Description("Generates the same puzzle again (see Generator); 0 for puzzles from a source")
+	long seed;
+
+	@Label("From Puzzle Source")
+	@Description("The puzzle was taken ready-made from the puzzle supply or bank")
+	boolean fromSource;
+
+	@Label("Attempts")
+	@Description("Boards generated before one was accepted")
+	int attempts;
+
+	@Label("Requested Blanks")
+	int requestedBlanks;
+
+	@Label("Achieved Blanks")
+	int achievedBlanks;
+
+	@Label("Fill Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long fillTime;
+
+	@Label("Removal Time")
+	@Timespan(Timespan.NANOSECONDS)
+	long removalTime;
+
+	@Label("Rating Time")
+	@Description("Rating, and removing further digits while the board was too easy")
+	@Timespan(Timespan.NANOSECONDS)
+	long ratingTime;
+
+	@Label("isCellRemovable Calls")
+	long removabilityChecks;
+
+	@Label("Uniqueness Checks")
+	@Description("Dancing links solution counts made while removing digits")
+	long uniquenessChecks;
+
+	@Label("Uniqueness Give-ups")
+	@Description("Uniqueness checks abandoned at the search step limit")
+	long uniquenessGiveUps;
+
+	@Label("Uniqueness Nodes Visited")
+	long uniquenessNodes;
+}
+
+/**
+ * one phase (fill, remove or rate) of one attempt of newBoard
+ */
+@Name("Sudoku.GenerationPhase")
+@Label("Board Generation Phase")
+@Category("Sudoku")
+class GenerationPhaseEvent extends Event {
+	@Label("Phase")
+	String phase;
+
+	@Label("Attempt")
+	int attempt;
+
+	@Label("Difficulty")
+	String difficulty;
+
+	@Label("Box Size")
+	int boxSize;
+}
+
+/**
+ * one call of solve
+ */
+@Name("Sudoku.Solve")
+@Label("Solve")
+@Category("Sudoku")
+class SolveEvent extends Event {
+	@Label("Backend")
+	String backend;
+
+	@Label("Box Size")
+	int boxSize;
+
+	@Label("Blanks")
+	@Description("Blanks left by the givens, before solving")
+	int blanks;
+
+	@Label("Solved")
+	boolean solved;
+
+	@Label("Cache Hit")
+	@Description("The solution was taken from the solution cache, without a search")
+	boolean cacheHit;
+
+	@Label("Nodes Visited")
+	@Description("Search steps (dancing links) or cell searches (forced digits)")
+	long nodesVisited;
+
+	@Label("Backtracks")
+	@Description("Choices undone after they failed")
+	long backtracks;
+
+	@Label("isCellRemovable Calls")
+	@Description("Digits tested by the forced digits solver")
+	long removabilityChecks;
+}
+
+/**
+ * one call of check
+ */
+@Name("Sudoku.Check")
+@Label("Check")
+@Category("Sudoku")
+class CheckEvent extends Event {
+	@Label("Box Size")
+	int boxSize;
+
+	@Label("isCellValid Calls")
+	long validityChecks;
+
+	@Label("Conflicting Cells")
+	int conflicts;
+}
@@ -0,0 +1,385 @@
+package Sudoku;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * generates puzzles: fills a grid with a random solution, then removes
+ * digits while the puzzle keeps a single solution.
+ * <p>
+ * stateless- each call works on state of its own (see Generation), so any
+ * number of threads can generate at once.
+ * <p>
+ * every puzzle is determined by its 64-bit seed: the same seed (with the same
+ * shape, difficulty and fill mode) generates the same puzzle, bit for bit, so
+ * a puzzle that is slow to generate or turns out wrong can be reproduced from
+ * the seed in its GenerationEvent. callers that generate in parallel should
+ * draw their seeds from a SplittableRandom split per thread.
+ * <p>
+ * each generation is reported as a GenerationEvent (and each phase of each
+ * attempt as a GenerationPhaseEvent) and added to SudokuMetrics.
+ */
+final class Generator {
+	/** generate settles for a puzzle outside the difficulty's range after this many tries */
+	static final int MAX_GENERATION_ATTEMPTS = 100;
+	/** the search steps removeDigits may spend proving that a removal keeps the solution unique */
+	static final long MAX_UNIQUENESS_STEPS = 2000;
+
+	private Generator() {
+	}
+
+	/**
+	 * generates a puzzle (from a grid filled by symmetry transforms)
+	 * @param shape - the puzzle's shape
+	 * @param diff - the requested difficulty
+	 * @param seed - determines the puzzle
+	 * @return - the puzzle (every digit a given)
+	 */
+	static Grid generate(BoardShape shape, Difficulty diff, long seed) {
+		return generate(shape, diff, seed, GridFillMode.SYMMETRY_TRANSFORM, null);
+	}
+
+	/**
+	 * generates a puzzle.
+	 * <p>
+	 * puzzles are rated by LogicalSolver: a puzzle that is too easy for diff
+	 * has more digits removed, and one that is too hard is thrown away and
+	 * generation starts over. the techniques' ranges are calibrated for 9x9
+	 * boards- other sizes are only rated by their number of blanks.
+	 * @param shape - the puzzle's shape
+	 * @param diff - the requested difficulty
+	 * @param seed - determines the puzzle (along with shape, diff and mode)
+	 * @param mode - how the solved grid is filled before digits are removed
+	 * @param listener - told about each phase's progress, and may cancel (null = no reports)
+	 * @return - the puzzle (every digit a given)
+	 */
+	static Grid generate(BoardShape shape, Difficulty diff, long seed,
+	                     GridFillMode mode, ProgressListener listener) {
+		return new Generation(shape, diff, seed, mode, listener).run();
+	}
+
+	/**
+	 * checks if the digit at (row, col) is the only possible position for
+	 * itself in its row, column or box (and thus can be removed without
+	 * adding to the board's possible solutions).
+	 * <p>
+	 * the digit is lifted out of engine while the empty cells sharing its
+	 * row, column and box are tested, then put back.
+	 * @param shape - the board's shape
+	 * @param cells - the board's digits in row-major order (0 = blank)
+	 * @param engine - the digits of cells (restored before returning)
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - is the digit the only possible digit for this position?
+	 */
+	static boolean isCellRemovable(BoardShape shape, int[] cells, CandidateEngine engine, int row, int col) {
+		int size = shape.size;
+		int digit = cells[row * size + col];
+		if(digit == 0) { // nothing to remove
+			return false;
+		}
+		engine.remove(digit, row, col); // prevent false collisions
+		boolean isRequiredInRow = true;
+		boolean isRequiredInCol = true; 
+		boolean isRequiredInBox = true;
+		
+		// check cells in the same column for other valid positions
+		for(int r = 0; r < size; r++) {
+			if(r == row) // skip the position already known to be valid
+				continue;
+			
+			if(cells[r * size + col] == 0 && engine.canPlace(digit, r, col)) { // another valid position found
+				isRequiredInRow = false;
+				break;
+			}
+		}
+		
+		// check cells in the same row
+		for(int c = 0; c < size; c++) {
+			if(c == col)
+				continue;
+			
+			if(cells[row * size + c] == 0 && engine.canPlace(digit, row, c)) {
+				isRequiredInCol = false;
+				break;
+			}
+		}
+		
+		// check box
+		int boxSize = shape.boxSize;
+		int boxRow = (row / boxSize) * boxSize;
+		int boxCol = (col / boxSize) * boxSize;
+		checkBox:
+		for(int r = boxRow; r < boxRow + boxSize; r++) {
+			for(int c = boxCol; c < boxCol + boxSize; c++) {
+				if(r == row && col == c)
+					continue;
+				
+				if(cells[r * size + c] == 0 && engine.canPlace(digit, r, c)) {
+					isRequiredInBox = false;
+					break checkBox;
+				}
+			}
+		}
+		
+		engine.place(digit, row, col);
+		return isRequiredInRow || isRequiredInCol || isRequiredInBox;
+	}
+
+	/**
+	 * the state of one call of generate: the grid being worked on, and the
+	 * counts of work reported in its events
+	 */
+	private static class Generation {
+		private final BoardShape shape;
+		private final int size;
+		private final Difficulty diff;
+		private final long seed;
+		/** every random choice of the generation comes from here (seeded with seed) */
+		private final SplittableRandom rand;
+		private final GridFillMode mode;
+		private final ProgressListener listener;
+
+		/** the grid being generated (row-major, 0 = blank) */
+		private final int[] cells;
+		/** the digits of cells */
+		private final CandidateEngine engine;
+		private final DancingLinksSolver solver;
+		/** created on first use by rate() */
+		private LogicalSolver rater;
+		private int attempt;
+
+		private long removabilityChecks;
+		private long uniquenessChecks;
+		private long uniquenessGiveUps;
+		private long uniquenessNodes;
+
+		Generation(BoardShape shape, Difficulty diff, long seed,
+		           GridFillMode mode, ProgressListener listener) {
+			this.shape = shape;
+			this.size = shape.size;
+			this.diff = diff;
+			this.seed = seed;
+			this.rand = new SplittableRandom(seed);
+			this.mode = mode;
+			this.listener = listener;
+			cells = new int[shape.cells];
+			engine = new CandidateEngine(shape);
+			solver = Solver.dancingLinks(shape);
+		}
+
+		private void reportProgress(String phase, long work) {
+			if(listener != null) {
+				listener.progress(phase, attempt, work);
+			}
+		}
+
+		Grid run() {
+			long start = System.nanoTime();
+			GenerationEvent event = new GenerationEvent();
+			event.begin();
+			event.difficulty = diff.name();
+			event.boxSize = shape.boxSize;
+			event.seed = seed;
+			event.requestedBlanks = diff.getNumBlanks(shape.cells);
+
+			for(attempt = 1; ; attempt++) {
+				event.attempts = attempt;
+				
+				long phaseStart = System.nanoTime();
+				reportProgress("fill", 0);
+				GenerationPhaseEvent phase = beginPhase("fill");
+				fill();
+				phase.commit();
+				event.fillTime += System.nanoTime() - phaseStart;
+				
+				phaseStart = System.nanoTime();
+				phase = beginPhase("remove");
+				removeDigits(event.requestedBlanks);
+				phase.commit();
+				event.removalTime += System.nanoTime() - phaseStart;
+				if(shape != BoardShape.STANDARD) {
+					break;
+				}
+				
+				phaseStart = System.nanoTime();
+				reportProgress("rate", 0);
+				phase = beginPhase("rate");
+				// keep removing digits while the puzzle is too easy
+				Rating rating = rate();
+				while(diff.isTooEasy(rating) && removeDigits(1) == 1) {
+					rating = rate();
+				}
+				phase.commit();
+				event.ratingTime += System.nanoTime() - phaseStart;
+				
+				if(diff.accepts(rating) || attempt == MAX_GENERATION_ATTEMPTS) {
+					break;
+				}
+			}
+
+			Grid puzzle = Grid.of(shape, cells);
+			event.achievedBlanks = puzzle.countBlanks();
+			event.removabilityChecks = removabilityChecks;
+			event.uniquenessChecks = uniquenessChecks;
+			event.uniquenessGiveUps = uniquenessGiveUps;
+			event.uniquenessNodes = uniquenessNodes;
+			event.commit();
+			SudokuMetrics.INSTANCE.recordGeneration(event, System.nanoTime() - start);
+			return puzzle;
+		}
+		
+		/**
+		 * starts timing a phase of the current attempt
+		 * @return - the phase's event (to be committed when the phase ends)
+		 */
+		private GenerationPhaseEvent beginPhase(String name) {
+			GenerationPhaseEvent phase = new GenerationPhaseEvent();
+			phase.begin();
+			phase.phase = name;
+			phase.attempt = attempt;
+			phase.difficulty = diff.name();
+			phase.boxSize = shape.boxSize;
+			return phase;
+		}
+
+		/**
+		 * fills cells with a random solved grid, using mode
+		 */
+		private void fill() {
+			Arrays.fill(cells, 0);
+			engine.clear();
+			if(mode == GridFillMode.BACKTRACKING) {
+				fillFrom(0);
+				return;
+			}
+			
+			SymmetryTransforms.randomSolvedGrid(cells, shape.boxSize, rand);
+			for(int cell = 0; cell < shape.cells; cell++) {
+				engine.place(cells[cell], cell / size, cell % size);
+			}
+		}
+		
+		/**
+		 * uses backtracking to fill cells with random (but valid) numbers.
+		 * <p> 
+		 * starts at the top left, and for each cell, it asks engine for
+		 * the digits that can legally be placed in that position. They are
+		 * tried in random order; if a digit can be placed there, it attempts
+		 * to move on. If no digit leads to a full board, it backtracks.
+		 * 
+		 * @return - success?
+		 */
+		private boolean fillFrom(int cell) {
+			if(cell == shape.cells) //the entire board is filled
+				return true;
+
+			int row = cell / size;
+			int col = cell % size;
+			long possibleDigits = engine.candidates(row, col);
+			while(possibleDigits != 0) {
+				long digitBit = randomBit(possibleDigits);
+				possibleDigits &= ~digitBit;
+				int digit = Long.numberOfTrailingZeros(digitBit) + 1;
+				
+				cells[cell] = digit;
+				engine.place(digit, row, col);
+				if(fillFrom(cell + 1)) { // attempt to continue
+					return true;
+				}
+				// otherwise try next digit
+				engine.remove(digit, row, col);
+			}
+			cells[cell] = 0; // prevent false shared-digits when backtracking
+			return false;
+		}
+		
+		/**
+		 * picks one of the set bits of mask at random
+		 * @param mask - a non-zero bit mask
+		 * @return - a mask holding only the chosen bit
+		 */
+		private long randomBit(long mask) {
+			for(int skip = rand.nextInt(Long.bitCount(mask)); skip > 0; skip--) {
+				mask &= mask - 1; // clear the lowest set bit
+			}
+			return Long.lowestOneBit(mask);
+		}
+		
+		/**
+		 * attempts to remove a number of "removable digits"
+		 * (digits whose removal does not add another possible solution)
+		 * <p>
+		 * the filled cells are visited in a random order. a digit that is
+		 * the only possible position for itself in its row, column or box
+		 * (isCellRemovable) can always be removed. any other digit is blanked,
+		 * and put back unless the board still has exactly one solution
+		 * (checked with a solution count bounded at 2, and at MAX_UNIQUENESS_STEPS
+		 * search steps- a digit whose removal cannot be proven safe in that
+		 * time stays, which keeps large boards fast to generate).
+		 * @param numDigitsToRemove - number of digits to try to remove
+		 * @return - the number of digits successfully removed
+		 */
+		private int removeDigits(int numDigitsToRemove) {
+			int[] order = new int[shape.cells];
+			for(int i = 0; i < shape.cells; i++) {
+				order[i] = i;
+			}
+			
+			// shuffle the order the cells are visited in
+			for(int i = shape.cells - 1; i > 0; i--) {
+				int j = rand.nextInt(i + 1);
+				int swap = order[i];
+				order[i] = order[j];
+				order[j] = swap;
+			}
+			
+			int removed = 0;
+			for(int i = 0; i < shape.cells && removed < numDigitsToRemove; i++) {
+				int cell = order[i];
+				int digit = cells[cell];
+				if(digit == 0) {
+					continue;
+				}
+				
+				int row = cell / size;
+				int col = cell % size;
+				removabilityChecks++;
+				boolean removable = isCellRemovable(shape, cells, engine, row, col);
+				cells[cell] = 0;
+				if(removable || isStillUnique()) {
+					engine.remove(digit, row, col);
+					removed++;
+					reportProgress("remove", removed);
+				} else {
+					cells[cell] = digit;
+				}
+			}
+			return removed;
+		}
+		
+		/**
+		 * @return - does cells (with one digit removed) still have exactly one solution? 
+		 * (see removeDigits)
+		 */
+		private boolean isStillUnique() {
+			boolean unique = solver.countSolutions(cells, 2, MAX_UNIQUENESS_STEPS) == 1;
+			uniquenessChecks++;
+			uniquenessNodes += solver.getSteps();
+			if(solver.wasAbandoned()) {
+				uniquenessGiveUps++;
+			}
+			return unique;
+		}
+		
+		/**
+		 * @return - the rating (by solving technique) of cells
+		 */
+		private Rating rate() {
+			if(rater == null) {
+				rater = new LogicalSolver(shape);
+			}
+			return rater.rate(cells);
+		}
+	}
+}
@@ -0,0 +1,217 @@
+package Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * an immutable board: the digit of every cell, and which of them are
+ * givens (part of the puzzle, as opposed to filled in by a player or solver).
+ * <p>
+ * grids can be shared freely between threads. Solver, Generator and Checker
+ * work on grids without any state of their own, so any number of threads can
+ * use them at once; SudokuBoard is the mutable game that wraps them.
+ */
+final class Grid {
+	private final BoardShape shape;
+	/** each cell's digit (row-major, 0 = blank) */
+	private final int[] digits;
+	/** one bit per cell, set when the cell's digit is a given */
+	private final long[] givens;
+
+	/** takes ownership of digits and givens (callers must not keep them) */
+	private Grid(BoardShape shape, int[] digits, long[] givens) {
+		this.shape = shape;
+		this.digits = digits;
+		this.givens = givens;
+	}
+
+	/**
+	 * @param shape - the board's shape
+	 * @return - a grid with every cell blank
+	 */
+	static Grid blank(BoardShape shape) {
+		return new Grid(shape, new int[shape.cells], new long[(shape.cells + 63) / 64]);
+	}
+
+	/**
+	 * creates a puzzle: every digit of cells is a given
+	 * @param shape - the board's shape
+	 * @param cells - the digits in row-major order (0 = blank); copied
+	 * @throws IllegalArgumentException - if cells is the wrong length or holds a digit out of range
+	 */
+	static Grid of(BoardShape shape, int[] cells) {
+		boolean[] givens = new boolean[cells.length];
+		for(int cell = 0; cell < cells.length; cell++) {
+			givens[cell] = cells[cell] != 0;
+		}
+		return of(shape, cells, givens);
+	}
+
+	/**
+	 * @param shape - the board's shape
+	 * @param cells - the digits in row-major order (0 = blank); copied
+	 * @param givens - which of the digits are givens (ignored for blank cells)
+	 * @throws IllegalArgumentException - if cells is the wrong length or holds a digit out of range
+	 */
+	static Grid of(BoardShape shape, int[] cells, boolean[] givens) {
+		if(cells.length != shape.cells || givens.length != shape.cells) {
+			throw new IllegalArgumentException("expected " + shape.cells + " cells, got " + cells.length);
+		}
+		long[] givenBits = new long[(shape.cells + 63) / 64];
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(cells[cell] < 0 || cells[cell] > shape.size) {
+				throw new IllegalArgumentException("digit out of range: " + cells[cell]);
+			}
+			if(givens[cell] && cells[cell] != 0) {
+				givenBits[cell >>> 6] |= 1L << cell;
+			}
+		}
+		return new Grid(shape, cells.clone(), givenBits);
+	}
+
+	/**
+	 * reads a 9x9 puzzle line (see PuzzleFormat)
+	 * @param line - the puzzle's text
+	 * @return - the puzzle (every digit a given), or null if line is not a well-formed puzzle
+	 */
+	static Grid parse(CharSequence line) {
+		int[] cells = new int[PuzzleFormat.LENGTH];
+		if(!PuzzleFormat.parse(line, cells)) {
+			return null;
+		}
+		return of(BoardShape.STANDARD, cells);
+	}
+
+	BoardShape getShape() {
+		return shape;
+	}
+
+	/** @return - the width (in cells) of a box */
+	int getBoxSize() {
+		return shape.boxSize;
+	}
+
+	/** @return - the number of rows (and columns, boxes and digits) */
+	int getSize() {
+		return shape.size;
+	}
+
+	/**
+	 * @param cell - the cell's index (row * getSize() + col)
+	 * @return - the cell's digit (0 = blank)
+	 */
+	int getDigit(int cell) {
+		return digits[cell];
+	}
+
+	/** @return - the digit at (row, col) (0 = blank) */
+	int getDigit(int row, int col) {
+		return digits[row * shape.size + col];
+	}
+
+	/**
+	 * @param cell - the cell's index (row * getSize() + col)
+	 * @return - is the cell's digit a given?
+	 */
+	boolean isGiven(int cell) {
+		return (givens[cell >>> 6] & (1L << cell)) != 0;
+	}
+
+	/** @return - is the digit at (row, col) a given? */
+	boolean isGiven(int row, int col) {
+		return isGiven(row * shape.size + col);
+	}
+
+	/** @return - a copy of the digits in row-major order (0 = blank) */
+	int[] getCells() {
+		return digits.clone();
+	}
+
+	/** @return - the number of blank cells */
+	int countBlanks() {
+		int blanks = 0;
+		for(int digit : digits) {
+			if(digit == 0) {
+				blanks++;
+			}
+		}
+		return blanks;
+	}
+
+	/**
+	 * @param digit - the digit to place (0 = blank)
+	 * @param row - the cell's row
+	 * @param col - the cell's column
+	 * @return - a grid with the digit at (row, col) (not a given), and every other cell unchanged
+	 * @throws IllegalArgumentException - if the cell holds a given, or digit is out of range
+	 */
+	Grid with(int digit, int row, int col) {
+		int cell = row * shape.size + col;
+		if(isGiven(cell)) {
+			throw new IllegalArgumentException("cannot change a given: (" + row + ", " + col + ")");
+		}
+		if(digit < 0 || digit > shape.size) {
+			throw new IllegalArgumentException("digit out of range: " + digit);
+		}
+		int[] changed = digits.clone();
+		changed[cell] = digit;
+		return new Grid(shape, changed, givens);
+	}
+
+	/**
+	 * @param cells - new digits for the cells that are not givens (row-major; the
+	 * givens' entries are ignored); copied
+	 * @return - a grid with the same givens, and cells' digits everywhere else
+	 */
+	Grid withDigits(int[] cells) {
+		int[] changed = cells.clone();
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(isGiven(cell)) {
+				changed[cell] = digits[cell];
+			} else if(changed[cell] < 0 || changed[cell] > shape.size) {
+				throw new IllegalArgumentException("digit out of range: " + changed[cell]);
+			}
+		}
+		return new Grid(shape, changed, givens);
+	}
+
+	/** @return - a grid holding only the givens (everything else blank) */
+	Grid withoutEntries() {
+		int[] puzzle = new int[shape.cells];
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(isGiven(cell)) {
+				puzzle[cell] = digits[cell];
+			}
+		}
+		return new Grid(shape, puzzle, givens);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof Grid)) {
+			return false;
+		}
+		Grid other = (Grid) o;
+		return shape == other.shape && Arrays.equals(digits, other.digits) && Arrays.equals(givens, other.givens);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * Arrays.hashCode(digits) + Arrays.hashCode(givens);
+	}
+
+	/**
+	 * @return - the digits as one line, '0' for blanks (the PuzzleFormat line for 9x9
+	 * grids; larger grids write 10 to 25 as 'A' to 'P', as the game shows them)
+	 */
+	@Override
+	public String toString() {
+		if(shape == BoardShape.STANDARD) {
+			return PuzzleFormat.format(digits);
+		}
+		StringBuilder line = new StringBuilder(shape.cells);
+		for(int digit : digits) {
+			line.append(digit <= 9 ? (char) ('0' + digit) : (char) ('A' + digit - 10));
+		}
+		return line.toString();
+	}
+}
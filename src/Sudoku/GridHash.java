@@ -0,0 +1,88 @@
+package Sudoku;
+
+/**
+ * a 128-bit hash of a grid's givens (its box size and given digits- entries
+ * made by a player or solver are left out), compact enough to stand in for
+ * the puzzle as a map key.
+ * <p>
+ * the givens are packed 12 digits to a word, and the words are mixed into
+ * two 64-bit lanes with the block and finalization steps of MurmurHash3
+ * (x64, 128-bit). two different puzzles share a hash with probability
+ * around 2^-128, so the hash is used as the puzzle's identity.
+ */
+final class GridHash {
+	private static final long C1 = 0x87c37b91114253d5L;
+	private static final long C2 = 0x4cf5ad432745937fL;
+	/** the digits packed into each word (5 bits each- enough for 25x25) */
+	private static final int DIGITS_PER_WORD = 12;
+
+	/** the hash's high and low 64 bits */
+	final long high;
+	final long low;
+
+	private GridHash(long high, long low) {
+		this.high = high;
+		this.low = low;
+	}
+
+	/**
+	 * @param grid - a grid
+	 * @return - the hash of the grid's givens
+	 */
+	static GridHash of(Grid grid) {
+		int cells = grid.getShape().cells;
+		long h1 = grid.getBoxSize();
+		long h2 = grid.getBoxSize();
+		for(int start = 0; start < cells; start += DIGITS_PER_WORD) {
+			long word = 0;
+			for(int cell = start; cell < Math.min(cells, start + DIGITS_PER_WORD); cell++) {
+				word = (word << 5) | (grid.isGiven(cell) ? grid.getDigit(cell) : 0);
+			}
+			// one MurmurHash3 block, with word as both halves' input
+			h1 ^= Long.rotateLeft(word * C1, 31) * C2;
+			h1 = Long.rotateLeft(h1, 27) + h2;
+			h1 = h1 * 5 + 0x52dce729;
+			h2 ^= Long.rotateLeft(word * C2, 33) * C1;
+			h2 = Long.rotateLeft(h2, 31) + h1;
+			h2 = h2 * 5 + 0x38495ab5;
+		}
+		h1 ^= cells;
+		h2 ^= cells;
+		h1 += h2;
+		h2 += h1;
+		h1 = mix(h1);
+		h2 = mix(h2);
+		h1 += h2;
+		h2 += h1;
+		return new GridHash(h1, h2);
+	}
+
+	/** MurmurHash3's 64-bit finalizer: spreads every input bit over the whole output */
+	private static long mix(long k) {
+		k ^= k >>> 33;
+		k *= 0xff51afd7ed558ccdL;
+		k ^= k >>> 33;
+		k *= 0xc4ceb9fe1a85ec53L;
+		k ^= k >>> 33;
+		return k;
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if(!(o instanceof GridHash)) {
+			return false;
+		}
+		GridHash other = (GridHash) o;
+		return high == other.high && low == other.low;
+	}
+
+	@Override
+	public int hashCode() {
+		return (int) low;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x%016x", high, low);
+	}
+}
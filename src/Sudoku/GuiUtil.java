@@ -84,5 +84,16 @@ public class GuiUtil {
 		return button;
 	}
 	
+	/**
+	 * @param digit - a digit (1-25)
+	 * @return - the digit as shown on the board: 1-9, then A (10) to P (25)
+	 */
+	public static String digitText(int digit) {
+		if(digit <= 9) {
+			return String.valueOf(digit);
+		}
+		return String.valueOf((char) ('A' + digit - 10));
+	}
+	
 	public static Color defaultColor = new JPanel().getBackground();
 }
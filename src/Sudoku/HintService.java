@@ -0,0 +1,273 @@
+package Sudoku;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * a hint for the player: the next step of logic on the board (or the
+ * reason there is none), and the explanation shown for it
+ */
+class Hint {
+	/** the technique the step uses (null if there is no step- see getText) */
+	final Technique technique;
+	/** the cell a digit must be placed in (-1 if none) */
+	final int cell;
+	/** the digit to place in cell */
+	final int digit;
+	/** for each cell, a mask of the candidates the step eliminates (null if none) */
+	final long[] eliminations;
+	/** the cells the hint is about (row * size + col) */
+	final int[] cells;
+	private final String text;
+
+	Hint(Technique technique, int cell, int digit, long[] eliminations, int[] cells, String text) {
+		this.technique = technique;
+		this.cell = cell;
+		this.digit = digit;
+		this.eliminations = eliminations;
+		this.cells = cells;
+		this.text = text;
+	}
+
+	/** @return - does the hint place a digit? */
+	boolean isPlacement() {
+		return cell >= 0;
+	}
+
+	/** @return - the explanation of the hint, for the player */
+	String getText() {
+		return text;
+	}
+
+	@Override
+	public String toString() {
+		return text;
+	}
+}
+
+/**
+ * finds the next logical step on a board for the player, with its reasoning.
+ * <p>
+ * the board's CandidateGrid already holds every cell's candidates, so a hint
+ * is a copy of the masks into a LogicalSolver and one findDeduction()- no
+ * rescan of the board, and well under a frame even on 16x16 boards.
+ * <p>
+ * an instance is not thread-safe, and serves boards of one shape.
+ */
+class HintService {
+	private final BoardShape shape;
+	private final LogicalSolver solver;
+	private final int[] digits;
+	private final long[] candidates;
+
+	/**
+	 * @param shape - the shape of the boards to give hints for
+	 */
+	HintService(BoardShape shape) {
+		this.shape = shape;
+		solver = new LogicalSolver(shape);
+		digits = new int[shape.cells];
+		candidates = new long[shape.cells];
+	}
+
+	/** @return - the shape of the boards the service gives hints for */
+	BoardShape getShape() {
+		return shape;
+	}
+
+	/**
+	 * @param board - a board of the service's shape
+	 * @return - the next step of logic on the board, or a hint saying why there is none
+	 * (a digit that collides with another, a cell left without candidates, or a
+	 * position that needs more than the known techniques)
+	 */
+	Hint nextHint(SudokuBoard board) {
+		board.getCandidateGrid().copyTo(digits, candidates);
+
+		for(int cell = 0; cell < shape.cells; cell++) {
+			int row = cell / shape.size;
+			int col = cell % shape.size;
+			if(board.isCellConflicting(row, col)) {
+				return new Hint(null, -1, 0, null, new int[] {cell}, 
+						"The " + digitName(digits[cell]) + " at " + cellName(cell) + 
+						" is repeated in its row, column or box");
+			}
+		}
+		int blanks = 0;
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(digits[cell] == 0) {
+				blanks++;
+				if(candidates[cell] == 0) {
+					return new Hint(null, -1, 0, null, new int[] {cell}, 
+							"Nothing can go in " + cellName(cell) + "- a digit entered earlier must be wrong");
+				}
+			}
+		}
+		if(blanks == 0) {
+			return new Hint(null, -1, 0, null, new int[0], "The board is full");
+		}
+
+		solver.load(digits, candidates);
+		if(!solver.findDeduction()) {
+			Grid solution = SolutionCache.INSTANCE.get(board.getGrid());
+			if(solution != null) {
+				return solutionHint(solution);
+			}
+			return new Hint(null, -1, 0, null, new int[0], 
+					"No technique applies here- the next step needs trial and error");
+		}
+		return toHint(solver.deduction);
+	}
+
+	/**
+	 * when no technique applies but the puzzle's solution is known (see SolutionCache),
+	 * gives the digit of the blank cell with the fewest candidates (the cell trial
+	 * and error would start from)
+	 * @param solution - the solution of the board's givens
+	 */
+	private Hint solutionHint(Grid solution) {
+		int best = -1;
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(digits[cell] == 0 && (best < 0 || Long.bitCount(candidates[cell]) < Long.bitCount(candidates[best]))) {
+				best = cell;
+			}
+		}
+		int digit = solution.getDigit(best);
+		return new Hint(Technique.TRIAL_AND_ERROR, best, digit, null, new int[] {best}, 
+				"No technique applies here- but the puzzle's solution has " + digitName(digit) + 
+				" in " + cellName(best));
+	}
+
+	/**
+	 * copies a deduction into a hint, with its explanation
+	 */
+	private Hint toHint(Deduction deduction) {
+		Technique technique = deduction.technique;
+		if(deduction.isPlacement()) {
+			String text;
+			if(technique == Technique.NAKED_SINGLE) {
+				text = cellName(deduction.cell) + " can only be " + digitName(deduction.digit);
+			} else {
+				text = digitName(deduction.digit) + " has only one place in " + unitName(deduction.unit) + 
+				       ": " + cellName(deduction.cell);
+			}
+			return new Hint(technique, deduction.cell, deduction.digit, null, new int[] {deduction.cell}, 
+					techniqueName(technique) + ": " + text);
+		}
+
+		long[] eliminations = deduction.eliminations.clone();
+		List<Integer> eliminated = new ArrayList<>();
+		long eliminatedDigits = 0;
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(eliminations[cell] != 0) {
+				eliminated.add(cell);
+				eliminatedDigits |= eliminations[cell];
+			}
+		}
+
+		String text;
+		switch(technique) {
+			case LOCKED_CANDIDATES :
+				text = "in " + unitName(deduction.unit) + ", every " + digitsName(deduction.digitMask) + 
+				       " is in " + unitName(deduction.otherUnit) + "- so it can be removed from the rest of " + 
+				       unitName(deduction.otherUnit);
+				break;
+			case NAKED_PAIR :
+			case NAKED_TRIPLE :
+				text = cellsName(positionsToCells(deduction.unit, deduction.positions)) + " can only be " + 
+				       digitsName(deduction.digitMask) + "- so those digits can be removed from the rest of " + 
+				       unitName(deduction.unit);
+				break;
+			case HIDDEN_PAIR :
+			case HIDDEN_TRIPLE :
+				text = "in " + unitName(deduction.unit) + ", " + digitsName(deduction.digitMask) + 
+				       " can only go in " + cellsName(positionsToCells(deduction.unit, deduction.positions)) + 
+				       "- so those cells can't hold anything else";
+				break;
+			default : // fish
+				String base = deduction.rowsAreBase ? "rows" : "columns";
+				String cover = deduction.rowsAreBase ? "columns" : "rows";
+				text = "in " + base + " " + linesName(deduction.baseLines) + ", every " + 
+				       digitsName(deduction.digitMask) + " is in " + cover + " " + linesName(deduction.coverLines) + 
+				       "- so it can be removed from the rest of those " + cover;
+		}
+		text += " (" + digitsName(eliminatedDigits) + " out of " + cellsName(eliminated) + ")";
+
+		int[] cells = new int[eliminated.size()];
+		for(int i = 0; i < cells.length; i++) {
+			cells[i] = eliminated.get(i);
+		}
+		return new Hint(technique, -1, 0, eliminations, cells, techniqueName(technique) + ": " + text);
+	}
+
+	/** @return - the cells at the given positions (size-bit mask) of unit */
+	private List<Integer> positionsToCells(int unit, int positions) {
+		List<Integer> cells = new ArrayList<>();
+		for(int i = 0; i < shape.size; i++) {
+			if((positions & (1 << i)) != 0) {
+				cells.add(shape.units[unit][i]);
+			}
+		}
+		return cells;
+	}
+
+	/** @return - e.g. "Naked pair" for NAKED_PAIR */
+	private static String techniqueName(Technique technique) {
+		String name = technique.name().replace('_', ' ').toLowerCase(Locale.ROOT);
+		return Character.toUpperCase(name.charAt(0)) + name.substring(1);
+	}
+
+	/** @return - e.g. "r3c5" (rows and columns counted from 1) */
+	private String cellName(int cell) {
+		return "r" + (cell / shape.size + 1) + "c" + (cell % shape.size + 1);
+	}
+
+	/** @return - e.g. "row 3", "column 5" or "box 2" (see BoardShape.units) */
+	private String unitName(int unit) {
+		String[] kinds = {"row", "column", "box"};
+		return kinds[unit / shape.size] + " " + (unit % shape.size + 1);
+	}
+
+	private static String digitName(int digit) {
+		return GuiUtil.digitText(digit);
+	}
+
+	/** @return - the digits of mask, e.g. "3 and 8" */
+	private String digitsName(long mask) {
+		List<String> names = new ArrayList<>();
+		for(int d = 1; d <= shape.size; d++) {
+			if((mask & BoardShape.bit(d)) != 0) {
+				names.add(digitName(d));
+			}
+		}
+		return join(names);
+	}
+
+	/** @return - the lines (rows or columns) of mask, counted from 1, e.g. "2 and 6" */
+	private String linesName(int mask) {
+		List<String> names = new ArrayList<>();
+		for(int i = 0; i < shape.size; i++) {
+			if((mask & (1 << i)) != 0) {
+				names.add(String.valueOf(i + 1));
+			}
+		}
+		return join(names);
+	}
+
+	private String cellsName(List<Integer> cells) {
+		List<String> names = new ArrayList<>();
+		for(int cell : cells) {
+			names.add(cellName(cell));
+		}
+		return join(names);
+	}
+
+	/** @return - e.g. "a", "a and b" or "a, b and c" */
+	private static String join(List<String> names) {
+		if(names.size() <= 1) {
+			return String.join("", names);
+		}
+		return String.join(", ", names.subList(0, names.size() - 1)) + " and " + names.get(names.size() - 1);
+	}
+}
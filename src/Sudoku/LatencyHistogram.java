@@ -0,0 +1,92 @@
+package Sudoku;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * a lock-free histogram of durations (in nanoseconds), used to report
+ * latency percentiles.
+ * <p>
+ * values are grouped into buckets of 8 per power of two, so any
+ * percentile is reported to within 12.5% of its true value, using
+ * a fixed ~4 KB no matter how many values are recorded.
+ */
+class LatencyHistogram {
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	/** values below this are counted exactly, one bucket each */
+	private static final int LINEAR_LIMIT = 2 * SUB_BUCKETS;
+	private static final int BUCKETS = LINEAR_LIMIT + (63 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+	/**
+	 * @param nanos - a non-negative duration
+	 * @return - the bucket that nanos is counted in
+	 */
+	private static int bucketOf(long nanos) {
+		if(nanos < LINEAR_LIMIT) {
+			return (int) Math.max(nanos, 0);
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos); // position of the highest set bit
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+	}
+
+	/**
+	 * @param bucket - a bucket index
+	 * @return - the smallest duration counted in that bucket
+	 */
+	private static long lowestValueIn(int bucket) {
+		if(bucket < LINEAR_LIMIT) {
+			return bucket;
+		}
+		int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+		int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+		return (long) (SUB_BUCKETS + subBucket) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * counts one occurrence of a duration
+	 * @param nanos - the duration, in nanoseconds
+	 */
+	void record(long nanos) {
+		counts.incrementAndGet(bucketOf(nanos));
+	}
+
+	/** @return - the number of durations recorded */
+	long getCount() {
+		long total = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			total += counts.get(i);
+		}
+		return total;
+	}
+
+	/**
+	 * @param percentile - the percentile to find (0-100)
+	 * @return - the (approximate) duration, in nanoseconds, that the given
+	 * percentage of recorded durations do not exceed. 0 if nothing was recorded
+	 */
+	long getPercentile(double percentile) {
+		long total = getCount();
+		if(total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(total * percentile / 100.0));
+		long seen = 0;
+		for(int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if(seen >= rank) {
+				return lowestValueIn(i);
+			}
+		}
+		return lowestValueIn(BUCKETS - 1);
+	}
+
+	/** discards every recorded duration */
+	void reset() {
+		for(int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+	}
+}
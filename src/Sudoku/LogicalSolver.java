@@ -0,0 +1,598 @@
+package Sudoku;
+
+import java.util.Arrays;
+
+/**
+ * the human solving techniques known to LogicalSolver, in the order they
+ * are tried (cheapest first). each technique has a weight, added to a
+ * puzzle's rating every time the technique is needed.
+ */
+enum Technique {
+	HIDDEN_SINGLE (1), NAKED_SINGLE (2), LOCKED_CANDIDATES (5),
+	NAKED_PAIR (10), HIDDEN_PAIR (15), NAKED_TRIPLE (20), HIDDEN_TRIPLE (25),
+	X_WING (30), SWORDFISH (40),
+	/** none of the techniques apply- the puzzle needs guessing (or has no solution) */
+	TRIAL_AND_ERROR (100);
+
+	private int weight;
+
+	private Technique(int weight) {
+		this.weight = weight;
+	}
+
+	public int getWeight() {
+		return weight;
+	}
+}
+
+/**
+ * the result of rating a puzzle with LogicalSolver
+ */
+class Rating {
+	private final int score;
+	private final Technique hardestTechnique;
+
+	Rating(int score, Technique hardestTechnique) {
+		this.score = score;
+		this.hardestTechnique = hardestTechnique;
+	}
+
+	/** @return - the sum of the weights of every technique application needed to solve the puzzle */
+	int getScore() {
+		return score;
+	}
+
+	/** @return - the hardest technique the puzzle needed (null if it had no blanks) */
+	Technique getHardestTechnique() {
+		return hardestTechnique;
+	}
+
+	/** @return - can the puzzle be finished with logic alone? */
+	boolean isSolvedByLogic() {
+		return hardestTechnique != Technique.TRIAL_AND_ERROR;
+	}
+
+	@Override
+	public String toString() {
+		return score + " (" + hardestTechnique + ")";
+	}
+}
+
+/**
+ * a single step of logic found by LogicalSolver: either a digit that
+ * must go in a cell, or candidates that can be eliminated from cells.
+ * (a single instance is reused for every step, so that rating does not allocate)
+ */
+class Deduction {
+	Technique technique;
+
+	/** the cell a digit must be placed in (-1 if the step only eliminates candidates) */
+	int cell;
+	/** the digit to place in cell */
+	int digit;
+
+	/** for each cell, a mask of the candidates the step eliminates */
+	final long[] eliminations;
+
+	/**
+	 * the unit the step was found in (see BoardShape.units),
+	 * or -1 for fish (X-Wing, Swordfish)
+	 */
+	int unit;
+	/** for locked candidates, the unit the eliminations are made in */
+	int otherUnit;
+	/** the positions (within unit) of the cells involved */
+	int positions;
+	/** the digits involved */
+	long digitMask;
+
+	/** for fish, the indices of the base lines and the lines eliminated from */
+	int baseLines;
+	int coverLines;
+	/** for fish, are the base lines rows (or columns)? */
+	boolean rowsAreBase;
+
+	/**
+	 * @param cells - the number of cells on the boards being solved
+	 */
+	Deduction(int cells) {
+		eliminations = new long[cells];
+	}
+
+	/** forgets the previous step */
+	void clear() {
+		technique = null;
+		cell = -1;
+		digit = 0;
+		Arrays.fill(eliminations, 0L);
+		unit = -1;
+		otherUnit = -1;
+		positions = 0;
+		digitMask = 0;
+		baseLines = 0;
+		coverLines = 0;
+	}
+
+	/** @return - does the step place a digit? */
+	boolean isPlacement() {
+		return cell >= 0;
+	}
+}
+
+/**
+ * solves puzzles the way a person would- by repeatedly applying the
+ * cheapest technique that makes progress- in order to rate how hard
+ * they are.
+ * <p>
+ * the candidates of every cell are kept as masks (bit d - 1 set =
+ * digit d is still possible), so each technique is a handful of bitwise
+ * operations per unit and rating a 9x9 puzzle takes microseconds.
+ * <p>
+ * an instance is not thread-safe- each thread needs its own solver.
+ */
+class LogicalSolver {
+	private final BoardShape shape;
+	/** the number of rows (and columns, boxes and digits) */
+	private final int size;
+	/** the cells of each unit (see BoardShape.units) */
+	private final int[][] units;
+	/**
+	 * every size-bit mask with exactly 2 bits set, and with exactly 3 bits set
+	 * (used both as positions within a unit and as sets of digits)
+	 */
+	private final int[] pairs;
+	private final int[] triples;
+
+	private final int[] digits;
+	private final long[] candidates;
+	private int blanks;
+
+	/** per-unit working space for findHiddenSubset and findFish */
+	private final int[] unitPositions;
+
+	/** the step found by the last successful findDeduction() */
+	final Deduction deduction;
+
+	/**
+	 * @param shape - the shape of the boards to solve
+	 */
+	LogicalSolver(BoardShape shape) {
+		this.shape = shape;
+		size = shape.size;
+		units = shape.units;
+		digits = new int[shape.cells];
+		candidates = new long[shape.cells];
+		unitPositions = new int[size];
+		deduction = new Deduction(shape.cells);
+
+		pairs = new int[size * (size - 1) / 2];
+		triples = new int[size * (size - 1) * (size - 2) / 6];
+		int pairCount = 0;
+		int tripleCount = 0;
+		for(int i = 0; i < size; i++) {
+			for(int j = i + 1; j < size; j++) {
+				pairs[pairCount++] = 1 << i | 1 << j;
+				for(int k = j + 1; k < size; k++) {
+					triples[tripleCount++] = 1 << i | 1 << j | 1 << k;
+				}
+			}
+		}
+	}
+
+	/** creates a solver for 9x9 boards */
+	LogicalSolver() {
+		this(BoardShape.STANDARD);
+	}
+
+	/**
+	 * @param mask - a non-zero mask
+	 * @return - the digit of the lowest bit of mask
+	 */
+	private static int lowestDigit(long mask) {
+		return Long.numberOfTrailingZeros(mask) + 1;
+	}
+
+	/**
+	 * places digit in cell, removing it from the candidates of the cell's peers
+	 */
+	private void place(int cell, int digit) {
+		digits[cell] = digit;
+		candidates[cell] = 0;
+		blanks--;
+		long notDigit = ~BoardShape.bit(digit);
+		for(int peer : shape.peers[cell]) {
+			candidates[peer] &= notDigit;
+		}
+	}
+
+	/**
+	 * starts solving a new puzzle
+	 * @param cells - the board's digits in row-major order (0 = blank)
+	 * @return - false if two of the digits collide
+	 */
+	boolean load(int[] cells) {
+		blanks = shape.cells;
+		for(int i = 0; i < shape.cells; i++) {
+			digits[i] = 0;
+			candidates[i] = shape.allDigits;
+		}
+		for(int i = 0; i < shape.cells; i++) {
+			if(cells[i] != 0) {
+				if((candidates[i] & BoardShape.bit(cells[i])) == 0) {
+					return false;
+				}
+				place(i, cells[i]);
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * picks up solving part-way through, from candidates worked out elsewhere
+	 * (e.g. a CandidateGrid, which may already have had eliminations made)
+	 * @param cells - the board's digits in row-major order (0 = blank); not modified
+	 * @param cellCandidates - the candidates of each blank cell; not modified
+	 */
+	void load(int[] cells, long[] cellCandidates) {
+		blanks = 0;
+		for(int i = 0; i < shape.cells; i++) {
+			digits[i] = cells[i];
+			candidates[i] = cells[i] == 0 ? cellCandidates[i] : 0;
+			if(cells[i] == 0) {
+				blanks++;
+			}
+		}
+	}
+
+	/** @return - the number of blanks left */
+	int getBlanks() {
+		return blanks;
+	}
+
+	/**
+	 * @param cell - a cell index (row * size + col)
+	 * @return - the digit in cell (0 = blank)
+	 */
+	int getDigit(int cell) {
+		return digits[cell];
+	}
+
+	/**
+	 * @param cell - a cell index (row * size + col)
+	 * @return - the mask of digits still possible for cell (0 if the cell is filled)
+	 */
+	long getCandidates(int cell) {
+		return candidates[cell];
+	}
+
+	/**
+	 * looks for the cheapest technique that makes progress, recording it in deduction
+	 * @return - was a deduction found? (false if the puzzle is solved or stuck)
+	 */
+	boolean findDeduction() {
+		deduction.clear();
+		return findHiddenSingle() || findNakedSingle() || findLockedCandidates() ||
+		       findNakedSubset(pairs, Technique.NAKED_PAIR) ||
+		       findHiddenSubset(pairs, Technique.HIDDEN_PAIR) ||
+		       findNakedSubset(triples, Technique.NAKED_TRIPLE) ||
+		       findHiddenSubset(triples, Technique.HIDDEN_TRIPLE) ||
+		       findFish(pairs, Technique.X_WING) ||
+		       findFish(triples, Technique.SWORDFISH);
+	}
+
+	/** applies the step recorded in deduction */
+	void applyDeduction() {
+		if(deduction.isPlacement()) {
+			place(deduction.cell, deduction.digit);
+			return;
+		}
+		for(int i = 0; i < shape.cells; i++) {
+			candidates[i] &= ~deduction.eliminations[i];
+		}
+	}
+
+	/**
+	 * solves a puzzle with logic alone, recording the techniques needed
+	 * @param cells - the board's digits in row-major order (0 = blank); not modified
+	 * @return - the puzzle's rating. a puzzle that logic cannot finish
+	 * (or whose digits collide) is rated TRIAL_AND_ERROR
+	 */
+	Rating rate(int[] cells) {
+		if(!load(cells)) {
+			return new Rating(Technique.TRIAL_AND_ERROR.getWeight(), Technique.TRIAL_AND_ERROR);
+		}
+
+		int score = 0;
+		Technique hardest = null;
+		while(blanks > 0) {
+			Technique technique = findDeduction() ? deduction.technique : Technique.TRIAL_AND_ERROR;
+			score += technique.getWeight();
+			if(hardest == null || technique.compareTo(hardest) > 0) {
+				hardest = technique;
+			}
+			if(technique == Technique.TRIAL_AND_ERROR) {
+				break;
+			}
+			applyDeduction();
+		}
+		return new Rating(score, hardest);
+	}
+
+	private boolean findNakedSingle() {
+		for(int cell = 0; cell < shape.cells; cell++) {
+			if(digits[cell] == 0 && Long.bitCount(candidates[cell]) == 1) {
+				deduction.technique = Technique.NAKED_SINGLE;
+				deduction.cell = cell;
+				deduction.digit = lowestDigit(candidates[cell]);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private boolean findHiddenSingle() {
+		for(int u = 0; u < units.length; u++) {
+			long once = 0;
+			long twice = 0;
+			for(int cell : units[u]) {
+				twice |= once & candidates[cell];
+				once |= candidates[cell];
+			}
+			long singles = once & ~twice;
+			if(singles == 0) {
+				continue;
+			}
+
+			int digit = lowestDigit(singles);
+			for(int i = 0; i < size; i++) {
+				int cell = units[u][i];
+				if((candidates[cell] & BoardShape.bit(digit)) != 0) {
+					deduction.technique = Technique.HIDDEN_SINGLE;
+					deduction.cell = cell;
+					deduction.digit = digit;
+					deduction.unit = u;
+					deduction.positions = 1 << i;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * marks digit as eliminated from every cell of unit whose position is
+	 * not in excludedPositions, and which still has digit as a candidate
+	 * @return - was anything eliminated?
+	 */
+	private boolean eliminateFromUnit(int unit, int excludedPositions, long digitBit) {
+		boolean eliminated = false;
+		for(int i = 0; i < size; i++) {
+			int cell = units[unit][i];
+			if((excludedPositions & (1 << i)) == 0 && (candidates[cell] & digitBit) != 0) {
+				deduction.eliminations[cell] |= digitBit;
+				eliminated = true;
+			}
+		}
+		return eliminated;
+	}
+
+	/**
+	 * @return - the positions (size-bit mask) within unit of the cells that have digitBit as a candidate
+	 */
+	private int positionsOf(int unit, long digitBit) {
+		int positions = 0;
+		for(int i = 0; i < size; i++) {
+			if((candidates[units[unit][i]] & digitBit) != 0) {
+				positions |= 1 << i;
+			}
+		}
+		return positions;
+	}
+
+	/**
+	 * pointing (a box's candidates for a digit all lie in one line) and
+	 * claiming (a line's candidates for a digit all lie in one box)
+	 */
+	private boolean findLockedCandidates() {
+		for(int u = 0; u < units.length; u++) {
+			for(int digit = 1; digit <= size; digit++) {
+				long digitBit = BoardShape.bit(digit);
+				int positions = positionsOf(u, digitBit);
+				if(Integer.bitCount(positions) < 2) {
+					continue;
+				}
+
+				int first = units[u][Integer.numberOfTrailingZeros(positions)];
+				int otherUnit = -1;
+				boolean sameRow = true;
+				boolean sameCol = true;
+				boolean sameBox = true;
+				for(int i = 0; i < size; i++) {
+					if((positions & (1 << i)) != 0) {
+						int cell = units[u][i];
+						sameRow &= cell / size == first / size;
+						sameCol &= cell % size == first % size;
+						sameBox &= shape.boxIndex(cell / size, cell % size) ==
+						           shape.boxIndex(first / size, first % size);
+					}
+				}
+
+				if(u >= 2 * size) { // pointing
+					if(sameRow) {
+						otherUnit = first / size;
+					} else if(sameCol) {
+						otherUnit = size + first % size;
+					}
+				} else if(sameBox) { // claiming
+					otherUnit = 2 * size + shape.boxIndex(first / size, first % size);
+				}
+				if(otherUnit < 0) {
+					continue;
+				}
+
+				// the cells of otherUnit that are also in u keep the candidate
+				int keep = 0;
+				for(int i = 0; i < size; i++) {
+					int cell = units[otherUnit][i];
+					for(int j = 0; j < size; j++) {
+						if(units[u][j] == cell) {
+							keep |= 1 << i;
+						}
+					}
+				}
+				if(eliminateFromUnit(otherUnit, keep, digitBit)) {
+					deduction.technique = Technique.LOCKED_CANDIDATES;
+					deduction.unit = u;
+					deduction.otherUnit = otherUnit;
+					deduction.positions = positions;
+					deduction.digitMask = digitBit;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * naked subsets: n cells of a unit whose candidates are limited to the
+	 * same n digits- no other cell of the unit can hold those digits
+	 * @param subsets - the position masks to try (pairs or triples)
+	 */
+	private boolean findNakedSubset(int[] subsets, Technique technique) {
+		for(int u = 0; u < units.length; u++) {
+			nextSubset:
+			for(int subset : subsets) {
+				long union = 0;
+				for(int i = 0; i < size; i++) {
+					if((subset & (1 << i)) != 0) {
+						int cell = units[u][i];
+						if(digits[cell] != 0) {
+							continue nextSubset;
+						}
+						union |= candidates[cell];
+					}
+				}
+				if(Long.bitCount(union) != Integer.bitCount(subset)) {
+					continue;
+				}
+
+				boolean eliminated = false;
+				for(int i = 0; i < size; i++) {
+					int cell = units[u][i];
+					if((subset & (1 << i)) == 0 && (candidates[cell] & union) != 0) {
+						deduction.eliminations[cell] |= candidates[cell] & union;
+						eliminated = true;
+					}
+				}
+				if(eliminated) {
+					deduction.technique = technique;
+					deduction.unit = u;
+					deduction.positions = subset;
+					deduction.digitMask = union;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * hidden subsets: n digits that can only go in the same n cells of a
+	 * unit- those cells cannot hold any other digit
+	 * @param subsets - the digit masks to try (pairs or triples)
+	 */
+	private boolean findHiddenSubset(int[] subsets, Technique technique) {
+		int[] positions = unitPositions;
+		for(int u = 0; u < units.length; u++) {
+			for(int d = 0; d < size; d++) {
+				positions[d] = positionsOf(u, 1L << d);
+			}
+
+			nextSubset:
+			for(int subset : subsets) {
+				int union = 0;
+				for(int d = 0; d < size; d++) {
+					if((subset & (1 << d)) != 0) {
+						if(positions[d] == 0) { // the digit is already placed
+							continue nextSubset;
+						}
+						union |= positions[d];
+					}
+				}
+				if(Integer.bitCount(union) != Integer.bitCount(subset)) {
+					continue;
+				}
+
+				long others = ~(long) subset; // every digit outside the subset
+				boolean eliminated = false;
+				for(int i = 0; i < size; i++) {
+					int cell = units[u][i];
+					if((union & (1 << i)) != 0 && (candidates[cell] & others) != 0) {
+						deduction.eliminations[cell] |= candidates[cell] & others;
+						eliminated = true;
+					}
+				}
+				if(eliminated) {
+					deduction.technique = technique;
+					deduction.unit = u;
+					deduction.positions = union;
+					deduction.digitMask = subset;
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * fish (X-Wing for 2 lines, Swordfish for 3): n rows whose candidates
+	 * for a digit all lie in the same n columns- the digit cannot go
+	 * anywhere else in those columns. (and the same with rows and columns swapped)
+	 * @param subsets - the line masks to try (pairs or triples)
+	 */
+	private boolean findFish(int[] subsets, Technique technique) {
+		int[] lines = unitPositions;
+		for(int digit = 1; digit <= size; digit++) {
+			long digitBit = BoardShape.bit(digit);
+			for(int baseUnits = 0; baseUnits <= size; baseUnits += size) { // rows, then columns
+				int coverUnits = size - baseUnits;
+				for(int i = 0; i < size; i++) {
+					lines[i] = positionsOf(baseUnits + i, digitBit);
+				}
+
+				nextSubset:
+				for(int subset : subsets) {
+					int cover = 0;
+					for(int i = 0; i < size; i++) {
+						if((subset & (1 << i)) != 0) {
+							if(Integer.bitCount(lines[i]) < 2) {
+								continue nextSubset;
+							}
+							cover |= lines[i];
+						}
+					}
+					if(Integer.bitCount(cover) != Integer.bitCount(subset)) {
+						continue;
+					}
+
+					boolean eliminated = false;
+					for(int j = 0; j < size; j++) {
+						if((cover & (1 << j)) != 0) {
+							// position i of cover line j lies on base line i
+							eliminated |= eliminateFromUnit(coverUnits + j, subset, digitBit);
+						}
+					}
+					if(eliminated) {
+						deduction.technique = technique;
+						deduction.digitMask = digitBit;
+						deduction.baseLines = subset;
+						deduction.coverLines = cover;
+						deduction.rowsAreBase = baseUnits == 0;
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -1,10 +1,250 @@
 package Sudoku;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
+
 public class Main {
 	
-	public static void main(String[] args) {
+	private static final String USAGE = 
+			"usage: Sudoku                  (opens the game)\n" +
+			"       Sudoku --bank <file>    (opens the game, drawing new puzzles from a puzzle bank)\n" +
+			"       Sudoku --batch <file>   (solves the puzzles in file, or stdin if file is -)\n" +
+			"       Sudoku --make-bank <file> <count>\n" +
+			"                               (adds count puzzles of each difficulty to a puzzle bank,\n" +
+			"                                none the same as another up to symmetry)\n" +
+			"       Sudoku --minimal <seconds> [clues [seed]]\n" +
+			"                               (searches for the minimal puzzle with the fewest clues,\n" +
+			"                                stopping early at one with clues clues or fewer (0 = never);\n" +
+			"                                the same seed searches the same puzzles again)\n" +
+			"       Sudoku --generate <difficulty> [seed]\n" +
+			"                               (prints a new 9x9 puzzle, and the seed that generates it again)\n" +
+			"       Sudoku --serve <port>   (serves puzzles over HTTP on localhost: GET /generate?difficulty=HARD,\n" +
+			"                                POST /solve, POST /check, GET /stats)";
+	
+	/**
+	 * solves every puzzle in the file at path (or stdin, if path is "-"),
+	 * printing the solutions to stdout and a summary to stderr
+	 */
+	private static void runBatch(String path) throws IOException {
+		BufferedReader in = path.equals("-")
+				? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.US_ASCII))
+				: Files.newBufferedReader(Paths.get(path), StandardCharsets.US_ASCII);
+		BufferedWriter out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+
+		BatchSolver solver = new BatchSolver();
+		try(in) {
+			solver.run(in, out);
+		}
+		System.err.println(solver.getSummary());
+	}
+	
+	/** the chance of throwing away a new puzzle as a duplicate in runMakeBank */
+	private static final double DUPLICATE_FALSE_POSITIVE_RATE = 1e-6;
+	
+	/**
+	 * generates count puzzles of each difficulty on every core, and adds them
+	 * to the puzzle bank at path (creating it if needed). a puzzle that is the
+	 * same as one generated before, or already in the bank, up to symmetry
+	 * (see Canonicalizer) is thrown away and generated again.
+	 */
+	private static void runMakeBank(String path, int count) throws IOException {
+		PuzzleBankWriter writer = new PuzzleBankWriter();
+		Difficulty[] difficulties = Difficulty.values();
+		AtomicInteger nextPuzzle = new AtomicInteger();
+		AtomicInteger duplicates = new AtomicInteger();
+		int totalPuzzles = count * difficulties.length;
+		long start = System.nanoTime();
+
+		Path bankPath = Paths.get(path);
+		int existing = 0;
+		PuzzleBank bank = Files.exists(bankPath) ? new PuzzleBank(bankPath) : null;
+		if(bank != null) {
+			for(Difficulty diff : difficulties) {
+				existing += bank.getCount(diff);
+			}
+		}
+		BloomFilter seen = new BloomFilter((long) existing + totalPuzzles, DUPLICATE_FALSE_POSITIVE_RATE);
+		if(bank != null) {
+			try(bank) {
+				Canonicalizer canonicalizer = new Canonicalizer(BoardShape.STANDARD);
+				int[] cells = new int[81];
+				for(Difficulty diff : difficulties) {
+					for(int i = 0; i < bank.getCount(diff); i++) {
+						bank.copyPuzzle(diff, i, cells);
+						seen.add(canonicalizer.canonicalHash(cells));
+					}
+				}
+			}
+		}
+
+		SplittableRandom seeds = new SplittableRandom();
+		Thread[] workers = new Thread[Runtime.getRuntime().availableProcessors()];
+		for(int t = 0; t < workers.length; t++) {
+			SplittableRandom workerSeeds = seeds.split(); // one generator per worker
+			workers[t] = new Thread(() -> {
+				SudokuBoard board = new SudokuBoard();
+				board.setSeeds(workerSeeds);
+				LogicalSolver rater = new LogicalSolver();
+				Canonicalizer canonicalizer = new Canonicalizer(BoardShape.STANDARD);
+				int puzzle;
+				while((puzzle = nextPuzzle.getAndIncrement()) < totalPuzzles) {
+					Difficulty diff = difficulties[puzzle % difficulties.length];
+					int[] cells;
+					while(true) {
+						board.newBoard(diff);
+						cells = board.getCells();
+						if(seen.add(canonicalizer.canonicalHash(cells))) {
+							break;
+						}
+						duplicates.incrementAndGet();
+					}
+					writer.add(cells, diff, rater.rate(cells));
+				}
+			}, "bank-generator-" + t);
+			workers[t].start();
+		}
+		for(Thread worker : workers) {
+			try {
+				worker.join();
+			} catch(InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while generating puzzles", e);
+			}
+		}
+
+		writer.appendTo(bankPath);
+		System.err.printf("added %d puzzles to %s in %.3f s (%d duplicates thrown away)%n", totalPuzzles, path,
+				(System.nanoTime() - start) / 1e9, duplicates.get());
+	}
+	
+	/**
+	 * searches every core for minimal puzzles for the given number of seconds (or
+	 * until one with targetClues clues or fewer is found), printing the best to
+	 * stdout and a summary (with the search's seed) to stderr
+	 * @param seed - the search's seed (null = a random one)
+	 */
+	private static void runMinimal(int seconds, int targetClues, Long seed) throws IOException {
+		MinimalPuzzleGenerator generator = new MinimalPuzzleGenerator();
+		long searchSeed = seed != null ? seed : new SplittableRandom().nextLong();
+		int[] best;
+		try {
+			best = generator.run(seconds * 1_000_000_000L, targetClues, searchSeed);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("interrupted while generating puzzles", e);
+		}
+		System.out.println(PuzzleFormat.format(best));
+		System.err.println(generator.getSummary());
+	}
+	
+	/**
+	 * generates a puzzle, printing it to stdout and its seed to stderr
+	 * @param seed - the puzzle's seed (null = a random one)
+	 */
+	private static void runGenerate(Difficulty diff, Long seed) {
+		long puzzleSeed = seed != null ? seed : new SplittableRandom().nextLong();
+		Grid puzzle = Generator.generate(BoardShape.STANDARD, diff, puzzleSeed);
+		System.out.println(puzzle);
+		System.err.println("seed " + puzzleSeed);
+	}
+	
+	/**
+	 * serves puzzles over HTTP until the process is stopped, printing a
+	 * summary of the requests served to stderr on the way out
+	 */
+	private static void runServer(int port) throws IOException {
+		PuzzleSupply puzzleSupply = new PuzzleSupply();
+		puzzleSupply.start();
+		SudokuMetrics.INSTANCE.setPuzzleSupply(puzzleSupply);
+		PuzzleServer server = new PuzzleServer(port, puzzleSupply);
+		server.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			server.close();
+			System.err.println(server.getSummary());
+		}));
+		System.err.println("serving puzzles on http://localhost:" + server.getPort() + "/");
+	}
+	
+	public static void main(String[] args) throws IOException {
+		try {
+			SudokuMetrics.register(); // expose the generation/solve/check counters over JMX
+		} catch(JMException e) {
+			System.err.println("could not register " + SudokuMetrics.OBJECT_NAME + ": " + e);
+		}
+		
+		PuzzleBank bank = null;
+		if(args.length == 2 && args[0].equals("--batch")) {
+			runBatch(args[1]);
+			return;
+		} else if(args.length == 3 && args[0].equals("--make-bank") && args[2].matches("[0-9]{1,9}")) {
+			runMakeBank(args[1], Integer.parseInt(args[2]));
+			return;
+		} else if(args.length >= 2 && args.length <= 4 && args[0].equals("--minimal")
+				&& args[1].matches("[0-9]{1,6}") && (args.length == 2 || args[2].matches("[0-9]{1,2}"))
+				&& (args.length <= 3 || args[3].matches("-?[0-9]{1,19}"))) {
+			runMinimal(Integer.parseInt(args[1]), args.length >= 3 ? Integer.parseInt(args[2]) : 0,
+					args.length == 4 ? Long.valueOf(args[3]) : null);
+			return;
+		} else if((args.length == 2 || args.length == 3) && args[0].equals("--generate")
+				&& args[1].matches("(?i)trivial|easy|medium|hard|extreme")
+				&& (args.length == 2 || args[2].matches("-?[0-9]{1,19}"))) {
+			runGenerate(Difficulty.valueOf(args[1].toUpperCase(Locale.ROOT)), args.length == 3 ? Long.valueOf(args[2]) : null);
+			return;
+		} else if(args.length == 2 && args[0].equals("--serve") && args[1].matches("[0-9]{1,5}")) {
+			runServer(Integer.parseInt(args[1]));
+			return;
+		} else if(args.length == 2 && args[0].equals("--bank")) {
+			bank = new PuzzleBank(Paths.get(args[1]));
+		} else if(args.length != 0) {
+			System.err.println(USAGE);
+			System.exit(2);
+		}
+
+		PuzzleSupply puzzleSupply = new PuzzleSupply();
+		puzzleSupply.start(); // fill the queues while the window opens
+		SudokuMetrics.INSTANCE.setPuzzleSupply(puzzleSupply);
+
 		SudokuBoard board = new SudokuBoard();
-		UserInterface ui = new UserInterface(board);
+		if(bank == null) {
+			board.setPuzzleSource(puzzleSupply);
+		} else {
+			// the supply covers any difficulty the bank has no puzzles of
+			PuzzleBank puzzleBank = bank;
+			board.setPuzzleSource(new PuzzleSource() {
+				@Override
+				public boolean takePuzzle(Difficulty diff, int[] cells) {
+					return puzzleBank.takePuzzle(diff, cells) || puzzleSupply.takePuzzle(diff, cells);
+				}
+
+				@Override
+				public boolean takeSeededPuzzle(Difficulty diff, int[] cells, long[] seed) {
+					// only the supply's puzzles have seeds
+					return puzzleBank.getCount(diff) == 0 && puzzleSupply.takeSeededPuzzle(diff, cells, seed);
+				}
+			});
+		}
+		// pick up the last session where it was left off (the file is tiny, so reading it is instant)
+		SavedGame savedGame = null;
+		Autosaver autosaver = null;
+		try {
+			savedGame = SavedGame.readLatest(Autosaver.DEFAULT_PATH);
+			autosaver = new Autosaver(Autosaver.DEFAULT_PATH, savedGame == null ? 0 : savedGame.sequence);
+		} catch(IOException e) {
+			System.err.println("autosave disabled: " + e);
+		}
+		UserInterface ui = new UserInterface(board, savedGame, autosaver);
 		ui.showGui();
 	}
 	
@@ -0,0 +1,204 @@
+package Sudoku;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.random.RandomGenerator;
+
+/**
+ * searches every core for minimal 9x9 puzzles- puzzles with one solution
+ * that lose it if any clue is removed- keeping the one with the fewest clues.
+ * <p>
+ * each worker repeatedly fills a random solved grid, then tries to remove
+ * every clue once, in a random order, keeping each removal that leaves the
+ * solution unique. one pass always ends in a minimal puzzle: a clue that had
+ * to stay when it was tried still has to stay once more clues are gone
+ * (removing clues only ever adds solutions). different grids and orders end
+ * at different clue counts (mostly the low to mid 20s).
+ * <p>
+ * workers share nothing but the best puzzle: each has its own cells, solver
+ * and random stream (split from one SplittableRandom, seeded by the run's
+ * seed). a run with the same seed and number of threads has every worker
+ * search the same sequence of puzzles- only how far each one gets depends
+ * on timing.
+ */
+class MinimalPuzzleGenerator {
+	private static final BoardShape SHAPE = BoardShape.STANDARD;
+
+	private final int threads;
+
+	/** the puzzle with the fewest clues found by the last run (null = none yet) */
+	private int[] best;
+	private int bestClues;
+	/** the time from the start of the last run to finding best */
+	private long bestNanos;
+	/** set once the last run has found a puzzle with its target number of clues */
+	private volatile boolean targetReached;
+	/** the seed of the last run */
+	private long seed;
+
+	private final AtomicLong puzzleCount = new AtomicLong();
+	/** the number of puzzles found with each number of clues */
+	private final AtomicLongArray clueCounts = new AtomicLongArray(SHAPE.cells + 1);
+	private long elapsedNanos;
+
+	/**
+	 * @param threads - the number of worker threads to search with
+	 */
+	MinimalPuzzleGenerator(int threads) {
+		this.threads = threads;
+	}
+
+	/** creates a generator that uses every available core */
+	MinimalPuzzleGenerator() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * searches for minimal puzzles until the time budget runs out, or
+	 * until one with targetClues clues or fewer is found
+	 * @param budgetNanos - how long to search for (every worker finishes the puzzle it is on)
+	 * @param targetClues - stop at the first puzzle with this many clues or fewer
+	 * (0 = search for the whole budget, and return the best)
+	 * @param seed - determines the puzzles each worker searches (see getSeed)
+	 * @return - the minimal puzzle with the fewest clues found (81 digits, 0 = blank)
+	 * @throws InterruptedException - if interrupted while waiting for the workers
+	 */
+	int[] run(long budgetNanos, int targetClues, long seed) throws InterruptedException {
+		long start = System.nanoTime();
+		long deadline = start + budgetNanos;
+		this.seed = seed;
+		SplittableRandom seeds = new SplittableRandom(seed);
+
+		Thread[] workers = new Thread[threads];
+		for(int t = 0; t < workers.length; t++) {
+			SplittableRandom rand = seeds.split(); // one stream per worker
+			workers[t] = new Thread(() -> {
+				DancingLinksSolver solver = new DancingLinksSolver(SHAPE);
+				int[] cells = new int[SHAPE.cells];
+				int[] order = new int[SHAPE.cells];
+				do {
+					fillGrid(cells, solver, rand);
+					int clues = removeClues(cells, order, solver, rand);
+					puzzleCount.incrementAndGet();
+					clueCounts.incrementAndGet(clues);
+					offer(cells, clues, targetClues, System.nanoTime() - start);
+				} while(!targetReached && System.nanoTime() < deadline);
+			}, "minimal-generator-" + t);
+			workers[t].start();
+		}
+		try {
+			for(Thread worker : workers) {
+				worker.join();
+			}
+		} finally {
+			elapsedNanos = System.nanoTime() - start;
+		}
+		return getBest();
+	}
+
+	/**
+	 * keeps cells if it has fewer clues than the best puzzle so far
+	 */
+	private synchronized void offer(int[] cells, int clues, int targetClues, long nanos) {
+		if(best == null || clues < bestClues) {
+			best = cells.clone();
+			bestClues = clues;
+			bestNanos = nanos;
+		}
+		if(clues <= targetClues) {
+			targetReached = true;
+		}
+	}
+
+	/** @return - the seed of the last run */
+	long getSeed() {
+		return seed;
+	}
+
+	/** @return - the minimal puzzle with the fewest clues found by the last run (null = none) */
+	synchronized int[] getBest() {
+		return best == null ? null : best.clone();
+	}
+
+	/**
+	 * fills cells with a random solved grid: the three boxes on the diagonal
+	 * share no row or column, so each is filled with a random permutation, and
+	 * the rest is solved from there. (unlike SymmetryTransforms, any grid can
+	 * come out- which matters, as some grids have much smaller minimal puzzles)
+	 */
+	private static void fillGrid(int[] cells, DancingLinksSolver solver, RandomGenerator rand) {
+		Arrays.fill(cells, 0);
+		int n = SHAPE.size;
+		int b = SHAPE.boxSize;
+		for(int box = 0; box < b; box++) {
+			for(int i = 0; i < n; i++) {
+				int cell = (box * b + i / b) * n + box * b + i % b;
+				int j = rand.nextInt(i + 1); // inside-out shuffle of the digits 1 to n
+				int other = (box * b + j / b) * n + box * b + j % b;
+				cells[cell] = cells[other];
+				cells[other] = i + 1;
+			}
+		}
+		solver.solve(cells);
+	}
+
+	/**
+	 * removes every clue of a solved grid that can go without losing
+	 * uniqueness, trying them in a random order
+	 * @param cells - the grid; left holding the minimal puzzle
+	 * @param order - scratch space for the order (SHAPE.cells long)
+	 * @return - the number of clues left
+	 */
+	private static int removeClues(int[] cells, int[] order, DancingLinksSolver solver, RandomGenerator rand) {
+		for(int i = 0; i < order.length; i++) {
+			int j = rand.nextInt(i + 1);
+			order[i] = order[j];
+			order[j] = i;
+		}
+
+		int clues = SHAPE.cells;
+		for(int cell : order) {
+			int digit = cells[cell];
+			cells[cell] = 0;
+			if(isForced(cells, cell, digit) || solver.countSolutions(cells, 2) == 1) {
+				clues--;
+			} else {
+				cells[cell] = digit;
+			}
+		}
+		return clues;
+	}
+
+	/**
+	 * @return - is digit the only one that the (blank) cell's peers leave it?
+	 * (if so, the clue can be removed without adding a solution- no search needed)
+	 */
+	private static boolean isForced(int[] cells, int cell, int digit) {
+		long seen = 0;
+		for(int peer : SHAPE.peers[cell]) {
+			seen |= BoardShape.bit(cells[peer]);
+		}
+		return (SHAPE.allDigits & ~seen) == BoardShape.bit(digit);
+	}
+
+	/** @return - a report of the best clue count, wall time and throughput of the last run */
+	String getSummary() {
+		StringBuilder histogram = new StringBuilder();
+		for(int clues = 0; clues < clueCounts.length(); clues++) {
+			if(clueCounts.get(clues) > 0) {
+				histogram.append(String.format(" %d:%d", clues, clueCounts.get(clues)));
+			}
+		}
+		double seconds = elapsedNanos / 1e9;
+		long puzzles = puzzleCount.get();
+		synchronized(this) {
+			return String.format("best: %d clues (found after %.3f s)%n"
+					+ "%d minimal puzzles in %.3f s on %d threads: %.0f puzzles/sec (seed %d)%n"
+					+ "clues:count%s",
+					bestClues, bestNanos / 1e9, puzzles, seconds, threads,
+					seconds > 0 ? puzzles / seconds : 0.0, seed, histogram);
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package Sudoku;
+
+/**
+ * the undo/redo history of a player's edits, kept in a fixed ring buffer
+ * of ints so that recording, undoing and redoing never allocate.
+ * <p>
+ * each move (one cell changing digit) is packed into a single int:
+ * <pre>
+ *   bits 0-9    the cell (row * size + col)
+ *   bits 10-14  the cell's old digit
+ *   bits 15-19  the cell's new digit
+ *   bit 20      set on the first move of a transaction
+ * </pre>
+ * moves made together (e.g. filling every selected cell) form one transaction,
+ * which is undone and redone as a whole. once the buffer is full, the oldest
+ * transactions are forgotten to make room.
+ */
+class MoveJournal {
+	/** the default number of moves remembered */
+	static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final int CELL_BITS = 10;
+	private static final int DIGIT_BITS = 5;
+	private static final int DIGIT_MASK = (1 << DIGIT_BITS) - 1;
+	private static final int OLD_SHIFT = CELL_BITS;
+	private static final int NEW_SHIFT = CELL_BITS + DIGIT_BITS;
+	private static final int TRANSACTION_START = 1 << (CELL_BITS + 2 * DIGIT_BITS);
+
+	private final int[] moves;
+	private final int mask;
+	/** the (unwrapped) index of the oldest move remembered */
+	private long first;
+	/** the index after the last move applied (moves before it can be undone) */
+	private long position;
+	/** the index after the last move recorded (moves from position to it can be redone) */
+	private long end;
+	/** should the next move recorded start a transaction? */
+	private boolean startPending;
+
+	/**
+	 * @param capacity - the number of moves to remember (a power of two)
+	 */
+	MoveJournal(int capacity) {
+		if(Integer.bitCount(capacity) != 1) {
+			throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+		}
+		moves = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/** creates a journal that remembers DEFAULT_CAPACITY moves */
+	MoveJournal() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/** forgets every move */
+	void clear() {
+		first = 0;
+		position = 0;
+		end = 0;
+		startPending = false;
+	}
+
+	/**
+	 * starts a transaction: the moves recorded until the next begin() are undone together
+	 */
+	void begin() {
+		startPending = true;
+	}
+
+	/**
+	 * records a move (in the current transaction), discarding anything that could be redone
+	 * @param cell - the cell changed (row * size + col)
+	 * @param oldDigit - the cell's digit before the move
+	 * @param newDigit - the cell's digit after the move
+	 */
+	void record(int cell, int oldDigit, int newDigit) {
+		if(oldDigit == newDigit) {
+			return;
+		}
+		end = position;
+		if(end - first == moves.length) { // full- forget the oldest transaction
+			do {
+				first++;
+			} while(first < end && (moves[(int) first & mask] & TRANSACTION_START) == 0);
+		}
+
+		int move = cell | oldDigit << OLD_SHIFT | newDigit << NEW_SHIFT;
+		if(startPending || end == first) { // the first move remembered always starts a transaction
+			move |= TRANSACTION_START;
+			startPending = false;
+		}
+		moves[(int) end & mask] = move;
+		position = ++end;
+	}
+
+	/** @return - is there a transaction to undo? */
+	boolean canUndo() {
+		return position > first;
+	}
+
+	/** @return - is there a transaction to redo? */
+	boolean canRedo() {
+		return position < end;
+	}
+
+	/**
+	 * undoes the last transaction, putting back the old digit of each of its cells (last move first)
+	 * @param board - the board the moves were made on
+	 * @return - the number of cells changed (0 if there was nothing to undo)
+	 */
+	int undo(GameBoard board) {
+		int size = board.getSize();
+		int changed = 0;
+		while(position > first) {
+			int move = moves[(int) --position & mask];
+			int cell = move & ((1 << CELL_BITS) - 1);
+			board.putGuess((move >>> OLD_SHIFT) & DIGIT_MASK, cell / size, cell % size);
+			changed++;
+			if((move & TRANSACTION_START) != 0) {
+				break;
+			}
+		}
+		startPending = true;
+		return changed;
+	}
+
+	/**
+	 * redoes the last transaction undone, putting back the new digit of each of its cells
+	 * @param board - the board the moves were made on
+	 * @return - the number of cells changed (0 if there was nothing to redo)
+	 */
+	int redo(GameBoard board) {
+		int size = board.getSize();
+		int changed = 0;
+		while(position < end) {
+			int move = moves[(int) position & mask];
+			if(changed > 0 && (move & TRANSACTION_START) != 0) { // the next transaction
+				break;
+			}
+			int cell = move & ((1 << CELL_BITS) - 1);
+			board.putGuess((move >>> NEW_SHIFT) & DIGIT_MASK, cell / size, cell % size);
+			position++;
+			changed++;
+		}
+		startPending = true;
+		return changed;
+	}
+}
@@ -8,6 +8,29 @@ import javax.swing.*;
 public class NewGameDialog extends JDialog {
 	private JFrame parent; 
 	private Difficulty difficulty;
+	private int boxSize;
+	
+	private int setUpSizeRadioButtons(int currentGridRow, int currentBoxSize) {
+		JPanel sizePanel = new JPanel();
+		add(sizePanel, GuiUtil.createGBC(0, currentGridRow++));
+		
+		ButtonGroup sizeRadios = new ButtonGroup();
+		for(int size = BoardShape.MIN_BOX_SIZE; size <= BoardShape.MAX_BOX_SIZE; size++) {
+			final int buttonBoxSize = size;
+			int cells = size * size;
+			JRadioButton sizeButton = GuiUtil.createRadioButton(cells + "x" + cells, 15, e -> boxSize = buttonBoxSize);
+			sizePanel.add(sizeButton);
+			sizeRadios.add(sizeButton);
+			
+			// default = the current board's size
+			if(size == currentBoxSize) {
+				sizeButton.setSelected(true);
+			}
+		}
+		boxSize = currentBoxSize;
+		
+		return currentGridRow;
+	}
 	
 	private int setUpDifficultyRadioButtons(int currentGridRow) {
 
@@ -45,7 +68,7 @@ public class NewGameDialog extends JDialog {
 		this.parent = parent;
 		setLayout(new GridBagLayout());
 		
-		setSize(new Dimension(400, 400));
+		setSize(new Dimension(400, 500));
 		setResizable(false);
 		
 		int currentGridRow = 0;
@@ -60,6 +83,14 @@ public class NewGameDialog extends JDialog {
 
 		add(GuiUtil.createSpacer(0, 25), GuiUtil.createGBC(0, currentGridRow++));
 		
+		JLabel sizeLabel = new JLabel("Board size: ");
+		sizeLabel.setFont(GuiUtil.boldFontWithSize(20));
+		add(sizeLabel, GuiUtil.createGBC(0, currentGridRow++));
+		
+		currentGridRow = setUpSizeRadioButtons(currentGridRow, parent.gameBoardPanel.getBoxSize());
+
+		add(GuiUtil.createSpacer(0, 25), GuiUtil.createGBC(0, currentGridRow++));
+		
 		JPanel cancelOkPanel = new JPanel();
 		add(cancelOkPanel, GuiUtil.createGBC(0, currentGridRow++));
 		
@@ -72,9 +103,7 @@ public class NewGameDialog extends JDialog {
 		
 		JButton okButton = new JButton("Ok");
 		okButton.addActionListener(e -> {
-			parent.gameBoardPanel.reset();
-			parent.gameBoardPanel.setNewBoard(difficulty);
-			parent.gameBoardPanel.update();
+			parent.gameBoardPanel.setNewBoard(difficulty, boxSize); // generated in the background
 			dispose();
 		}
 		);
@@ -0,0 +1,193 @@
+package Sudoku;
+
+/**
+ * an immutable, compact copy of a board: 81 4-bit digits followed
+ * by an 81-bit map of which cells are givens (permanent), packed
+ * into 7 longs (405 of their 448 bits are used).
+ * <p>
+ * a PackedBoard takes 72 bytes of heap (against well over 400 for an
+ * int[9][9]). where even that is too much, writeTo and readFrom
+ * move the 7 words in and out of a plain long[], so that large
+ * collections can be held at 56 bytes per board. parse and toString
+ * convert to and from puzzle lines (see PuzzleFormat).
+ * <p>
+ * bit layout: the digit of cell i (row-major, 0 = blank) occupies
+ * bits 4i to 4i+3, and the given flag of cell i is bit 324+i,
+ * where bit b is bit (b % 64) of word (b / 64).
+ */
+final class PackedBoard {
+	/** the number of longs a board is packed into */
+	static final int WORDS = 7;
+	private static final int CELLS = 81;
+	private static final int GIVENS_START = CELLS * 4;
+
+	private final long w0, w1, w2, w3, w4, w5, w6;
+
+	private PackedBoard(long[] words, int offset) {
+		w0 = words[offset];
+		w1 = words[offset + 1];
+		w2 = words[offset + 2];
+		w3 = words[offset + 3];
+		w4 = words[offset + 4];
+		w5 = words[offset + 5];
+		w6 = words[offset + 6];
+	}
+
+	private long word(int index) {
+		switch(index) {
+			case 0 : return w0;
+			case 1 : return w1;
+			case 2 : return w2;
+			case 3 : return w3;
+			case 4 : return w4;
+			case 5 : return w5;
+			default : return w6;
+		}
+	}
+
+	/**
+	 * ORs value into words, starting at bit position bit
+	 */
+	private static void put(long[] words, int bit, long value) {
+		words[bit >>> 6] |= value << (bit & 63);
+	}
+
+	/**
+	 * packs a board in which every non-zero digit is a given
+	 * @param cells - 81 digits in row-major order (0 = blank)
+	 * @return - the packed board
+	 */
+	static PackedBoard of(int[] cells) {
+		long[] words = new long[WORDS];
+		for(int i = 0; i < CELLS; i++) {
+			if(cells[i] != 0) {
+				put(words, i * 4, cells[i]);
+				put(words, GIVENS_START + i, 1);
+			}
+		}
+		return new PackedBoard(words, 0);
+	}
+
+	/**
+	 * packs a board that may hold non-given (player entered) digits
+	 * @param cells - 81 digits in row-major order (0 = blank)
+	 * @param givens - which of the cells are givens
+	 * @return - the packed board
+	 */
+	static PackedBoard of(int[] cells, boolean[] givens) {
+		long[] words = new long[WORDS];
+		for(int i = 0; i < CELLS; i++) {
+			put(words, i * 4, cells[i]);
+			if(givens[i] && cells[i] != 0) {
+				put(words, GIVENS_START + i, 1);
+			}
+		}
+		return new PackedBoard(words, 0);
+	}
+
+	/**
+	 * packs a puzzle line (see PuzzleFormat.parse); every digit becomes a given
+	 * @param line - the 81 character puzzle (surrounding whitespace is ignored)
+	 * @return - the packed board, or null if line is not a well-formed puzzle
+	 */
+	static PackedBoard parse(CharSequence line) {
+		int[] cells = new int[CELLS];
+		return PuzzleFormat.parse(line, cells) ? of(cells) : null;
+	}
+
+	/**
+	 * reads a board previously stored with writeTo
+	 * @param words - the array holding the board
+	 * @param offset - the index of the board's first word
+	 * @return - the board
+	 */
+	static PackedBoard readFrom(long[] words, int offset) {
+		return new PackedBoard(words, offset);
+	}
+
+	/**
+	 * stores the board's 7 words into an array
+	 * @param words - the destination array
+	 * @param offset - the index to store the first word at
+	 */
+	void writeTo(long[] words, int offset) {
+		words[offset] = w0;
+		words[offset + 1] = w1;
+		words[offset + 2] = w2;
+		words[offset + 3] = w3;
+		words[offset + 4] = w4;
+		words[offset + 5] = w5;
+		words[offset + 6] = w6;
+	}
+
+	/**
+	 * @param cell - the cell's index (row * 9 + col)
+	 * @return - the cell's digit (0 = blank)
+	 */
+	int getDigit(int cell) {
+		return (int) (word(cell >>> 4) >>> ((cell & 15) << 2)) & 0xF;
+	}
+
+	/**
+	 * @param cell - the cell's index (row * 9 + col)
+	 * @return - is the cell a given?
+	 */
+	boolean isGiven(int cell) {
+		int bit = GIVENS_START + cell;
+		return (word(bit >>> 6) >>> (bit & 63) & 1) != 0;
+	}
+
+	/** @return - the number of givens on the board */
+	int getGivenCount() {
+		// the givens map starts 4 bits into w5
+		return Long.bitCount(w5 >>> 4) + Long.bitCount(w6);
+	}
+
+	/**
+	 * unpacks the board's digits
+	 * @param cells - receives the 81 digits in row-major order (0 = blank)
+	 */
+	void copyDigits(int[] cells) {
+		for(int i = 0; i < CELLS; i++) {
+			cells[i] = getDigit(i);
+		}
+	}
+
+	/**
+	 * @return - the board as a puzzle line (see PuzzleFormat), with blanks as '0'
+	 */
+	@Override
+	public String toString() {
+		char[] line = new char[CELLS];
+		for(int w = 0; w < 6; w++) {
+			long word = word(w);
+			for(int i = w * 16; i < Math.min(w * 16 + 16, CELLS); i++) {
+				line[i] = (char) ('0' + (word & 0xF));
+				word >>>= 4;
+			}
+		}
+		return new String(line);
+	}
+
+	@Override
+	public boolean equals(Object other) {
+		if(!(other instanceof PackedBoard)) {
+			return false;
+		}
+		PackedBoard board = (PackedBoard) other;
+		return w0 == board.w0 && w1 == board.w1 && w2 == board.w2 && w3 == board.w3 &&
+		       w4 == board.w4 && w5 == board.w5 && w6 == board.w6;
+	}
+
+	@Override
+	public int hashCode() {
+		long hash = w0;
+		hash = hash * 31 + w1;
+		hash = hash * 31 + w2;
+		hash = hash * 31 + w3;
+		hash = hash * 31 + w4;
+		hash = hash * 31 + w5;
+		hash = hash * 31 + w6;
+		return (int) (hash ^ (hash >>> 32));
+	}
+}
@@ -0,0 +1,19 @@
+package Sudoku;
+
+/**
+ * receives progress reports from SudokuBoard's long-running operations
+ * (newBoard and solve), on the thread doing the work.
+ * <p>
+ * a listener may cancel the operation by throwing
+ * java.util.concurrent.CancellationException, which is passed on to the
+ * operation's caller and leaves the board in an unspecified state.
+ */
+interface ProgressListener {
+	/**
+	 * @param phase - what the board is doing: "fill", "remove" or "rate" (newBoard), or "solve"
+	 * @param attempt - which of newBoard's generation attempts is running (1 for solve)
+	 * @param work - the work done so far in the phase: the blanks removed ("remove"),
+	 * the search nodes visited ("solve"), or 0
+	 */
+	void progress(String phase, int attempt, long work);
+}
@@ -0,0 +1,167 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * a file of pre-generated puzzles, memory-mapped so that drawing a puzzle
+ * is a single read of the mapped pages- no parsing, and no heap beyond
+ * the caller's cell array. the same file can be mapped by any number of
+ * processes, which then share one copy of it in the OS page cache.
+ * <p>
+ * file format (all numbers little-endian):
+ * <pre>
+ * header (64 bytes)
+ *   0  int    MAGIC
+ *   4  short  VERSION
+ *   6  short  RECORD_SIZE
+ *   8  5 x (int first record, int record count), one per Difficulty (in declaration order)
+ *   48 unused
+ * records (RECORD_SIZE bytes each), grouped by difficulty
+ *   0  41 bytes  the 81 digits, two per byte (even cells in the low nibble, 0 = blank)
+ *   41 short     the puzzle's rating score
+ *   43 byte      the ordinal of the hardest Technique needed (-1 if none)
+ *   44 byte      the ordinal of the puzzle's Difficulty
+ *   45 unused
+ * </pre>
+ * a single mapping is limited to 2 GB (about 44 million puzzles).
+ * PuzzleBankWriter creates and appends to bank files.
+ */
+class PuzzleBank implements PuzzleSource, AutoCloseable {
+	static final int MAGIC = 0x424B4453; // "SDKB" in file byte order
+	static final short VERSION = 1;
+	static final int HEADER_SIZE = 64;
+	static final int RECORD_SIZE = 48;
+	static final int DIGIT_BYTES = 41;
+	static final int SCORE_OFFSET = 41;
+	static final int TECHNIQUE_OFFSET = 43;
+	static final int DIFFICULTY_OFFSET = 44;
+
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final int[] firstRecord = new int[Difficulty.values().length];
+	private final int[] recordCount = new int[Difficulty.values().length];
+
+	/**
+	 * maps a bank file
+	 * @param path - the bank to open
+	 * @throws IOException - if the file cannot be read, or is not a valid bank
+	 */
+	PuzzleBank(Path path) throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			if(channel.size() > Integer.MAX_VALUE) {
+				throw new IOException("puzzle bank is too large to map: " + path);
+			}
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+			readHeader(buffer, channel.size(), firstRecord, recordCount, path);
+		} catch(IOException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * reads and validates the header of a bank
+	 * @param header - the bank's bytes, starting at the header (little-endian;
+	 * only the first HEADER_SIZE bytes are read)
+	 * @param fileSize - the size of the bank's file
+	 * @param firstRecord - receives the index of each difficulty's first record
+	 * @param recordCount - receives the number of records of each difficulty
+	 * @param path - the bank's file (for error messages)
+	 * @throws IOException - if the header is not valid for the file's size
+	 */
+	static void readHeader(ByteBuffer header, long fileSize, int[] firstRecord, int[] recordCount, Path path)
+			throws IOException {
+		if(fileSize < HEADER_SIZE || header.capacity() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+			throw new IOException("not a puzzle bank: " + path);
+		}
+		if(header.getShort(4) != VERSION || header.getShort(6) != RECORD_SIZE) {
+			throw new IOException("unsupported puzzle bank version: " + path);
+		}
+		long records = (fileSize - HEADER_SIZE) / RECORD_SIZE;
+		for(int d = 0; d < firstRecord.length; d++) {
+			firstRecord[d] = header.getInt(8 + d * 8);
+			recordCount[d] = header.getInt(12 + d * 8);
+			if(firstRecord[d] < 0 || recordCount[d] < 0 || (long) firstRecord[d] + recordCount[d] > records) {
+				throw new IOException("corrupt puzzle bank index: " + path);
+			}
+		}
+	}
+
+	/**
+	 * @param diff - a difficulty
+	 * @return - the number of puzzles of that difficulty in the bank
+	 */
+	int getCount(Difficulty diff) {
+		return recordCount[diff.ordinal()];
+	}
+
+	/**
+	 * @return - the byte offset of the index-th puzzle of difficulty diff
+	 */
+	private int offsetOf(Difficulty diff, int index) {
+		return HEADER_SIZE + (firstRecord[diff.ordinal()] + index) * RECORD_SIZE;
+	}
+
+	/**
+	 * copies a puzzle out of the bank
+	 * @param diff - the puzzle's difficulty
+	 * @param index - which of that difficulty's puzzles to read (0 to getCount(diff) - 1)
+	 * @param cells - receives the puzzle's 81 digits in row-major order (0 = blank)
+	 */
+	void copyPuzzle(Difficulty diff, int index, int[] cells) {
+		int offset = offsetOf(diff, index);
+		for(int i = 0; i < DIGIT_BYTES; i++) {
+			int pair = buffer.get(offset + i);
+			cells[i * 2] = pair & 0xF;
+			if(i * 2 + 1 < 81) {
+				cells[i * 2 + 1] = (pair >>> 4) & 0xF;
+			}
+		}
+	}
+
+	/**
+	 * @return - the rating score stored with the index-th puzzle of difficulty diff
+	 */
+	int getScore(Difficulty diff, int index) {
+		return buffer.getShort(offsetOf(diff, index) + SCORE_OFFSET);
+	}
+
+	/**
+	 * @return - the hardest technique stored with the index-th puzzle of difficulty diff
+	 * (null if the puzzle had no blanks)
+	 */
+	Technique getHardestTechnique(Difficulty diff, int index) {
+		int ordinal = buffer.get(offsetOf(diff, index) + TECHNIQUE_OFFSET);
+		return ordinal < 0 ? null : Technique.values()[ordinal];
+	}
+
+	/**
+	 * copies a random puzzle of the requested difficulty into cells
+	 */
+	@Override
+	public boolean takePuzzle(Difficulty diff, int[] cells) {
+		int count = getCount(diff);
+		if(count == 0) {
+			return false;
+		}
+		copyPuzzle(diff, ThreadLocalRandom.current().nextInt(count), cells);
+		return true;
+	}
+
+	/**
+	 * closes the file (the mapping itself is released when the bank is garbage collected)
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+}
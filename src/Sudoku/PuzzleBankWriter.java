@@ -0,0 +1,152 @@
+package Sudoku;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * collects puzzles in memory and writes them out as a PuzzleBank file
+ * (see PuzzleBank for the format), keeping the records of each
+ * difficulty together so the bank's index stays a simple range.
+ * <p>
+ * add is thread-safe, so several generator threads can feed one writer.
+ */
+class PuzzleBankWriter {
+	private final ByteArrayOutputStream[] records = new ByteArrayOutputStream[Difficulty.values().length];
+	private final byte[] record = new byte[PuzzleBank.RECORD_SIZE];
+
+	PuzzleBankWriter() {
+		for(int d = 0; d < records.length; d++) {
+			records[d] = new ByteArrayOutputStream();
+		}
+	}
+
+	/**
+	 * queues a puzzle to be written
+	 * @param cells - the puzzle's 81 digits in row-major order (0 = blank)
+	 * @param diff - the puzzle's difficulty
+	 * @param rating - the puzzle's rating
+	 */
+	synchronized void add(int[] cells, Difficulty diff, Rating rating) {
+		Arrays.fill(record, (byte) 0);
+		for(int i = 0; i < 81; i++) {
+			record[i / 2] |= cells[i] << ((i % 2) * 4);
+		}
+		int score = Math.min(rating.getScore(), Short.MAX_VALUE);
+		record[PuzzleBank.SCORE_OFFSET] = (byte) score;
+		record[PuzzleBank.SCORE_OFFSET + 1] = (byte) (score >>> 8);
+		Technique hardest = rating.getHardestTechnique();
+		record[PuzzleBank.TECHNIQUE_OFFSET] = (byte) (hardest == null ? -1 : hardest.ordinal());
+		record[PuzzleBank.DIFFICULTY_OFFSET] = (byte) diff.ordinal();
+		records[diff.ordinal()].write(record, 0, record.length);
+	}
+
+	/** @return - the number of puzzles queued */
+	synchronized int getCount() {
+		int count = 0;
+		for(ByteArrayOutputStream difficultyRecords : records) {
+			count += difficultyRecords.size() / PuzzleBank.RECORD_SIZE;
+		}
+		return count;
+	}
+
+	/**
+	 * writes the queued puzzles to a bank file, after the puzzles already in it
+	 * (if it exists). the new bank is written to a temporary file and then moved
+	 * over the old one, so readers never see a half-written bank.
+	 * <p>
+	 * the existing records are copied file to file (FileChannel.transferTo, which
+	 * the OS can do without passing them through user space), so appending to a
+	 * large bank takes no heap beyond the new records.
+	 * @param path - the bank file to create or extend
+	 * @throws IOException - if the existing bank cannot be read, or the new one written
+	 */
+	synchronized void appendTo(Path path) throws IOException {
+		int difficulties = records.length;
+		int[] existingFirst = new int[difficulties];
+		int[] existingCount = new int[difficulties];
+		try(FileChannel in = Files.exists(path) ? FileChannel.open(path, StandardOpenOption.READ) : null) {
+			if(in != null) {
+				ByteBuffer existingHeader = ByteBuffer.allocate(PuzzleBank.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+				while(existingHeader.hasRemaining()) {
+					if(in.read(existingHeader) < 0) {
+						break; // too short to be a bank- readHeader rejects it
+					}
+				}
+				PuzzleBank.readHeader(existingHeader, in.size(), existingFirst, existingCount, path);
+			}
+			writeBank(path, in, existingFirst, existingCount);
+		}
+
+		for(ByteArrayOutputStream difficultyRecords : records) {
+			difficultyRecords.reset();
+		}
+	}
+
+	/**
+	 * writes the existing records of each difficulty (if any), followed by the queued ones, to
+	 * a temporary file, then moves it over path
+	 * @param in - the existing bank (null = none)
+	 */
+	private void writeBank(Path path, FileChannel in, int[] existingFirst, int[] existingCount)
+			throws IOException {
+		int difficulties = records.length;
+
+		ByteBuffer header = ByteBuffer.allocate(PuzzleBank.HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(0, PuzzleBank.MAGIC);
+		header.putShort(4, PuzzleBank.VERSION);
+		header.putShort(6, (short) PuzzleBank.RECORD_SIZE);
+		long nextRecord = 0;
+		for(int d = 0; d < difficulties; d++) {
+			long count = existingCount[d] + (long) records[d].size() / PuzzleBank.RECORD_SIZE;
+			if(nextRecord + count > (Integer.MAX_VALUE - PuzzleBank.HEADER_SIZE) / PuzzleBank.RECORD_SIZE) {
+				throw new IOException("puzzle bank would exceed 2 GB: " + path);
+			}
+			header.putInt(8 + d * 8, (int) nextRecord);
+			header.putInt(12 + d * 8, (int) count);
+			nextRecord += count;
+		}
+
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try(FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE,
+		                                       StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			writeFully(out, header);
+			for(int d = 0; d < difficulties; d++) {
+				if(existingCount[d] > 0) {
+					long start = PuzzleBank.HEADER_SIZE + (long) existingFirst[d] * PuzzleBank.RECORD_SIZE;
+					copyFully(in, start, (long) existingCount[d] * PuzzleBank.RECORD_SIZE, out);
+				}
+				writeFully(out, ByteBuffer.wrap(records[d].toByteArray()));
+			}
+			out.force(true);
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * appends length bytes of in, starting at position, to out
+	 */
+	private static void copyFully(FileChannel in, long position, long length, FileChannel out) throws IOException {
+		while(length > 0) {
+			long copied = in.transferTo(position, length, out);
+			if(copied <= 0) {
+				throw new IOException("puzzle bank ended early");
+			}
+			position += copied;
+			length -= copied;
+		}
+	}
+
+	private static void writeFully(FileChannel out, ByteBuffer bytes) throws IOException {
+		while(bytes.hasRemaining()) {
+			out.write(bytes);
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package Sudoku;
+
+/**
+ * converts boards to and from the single-line text format used by
+ * puzzle files: 81 characters in row-major order, with the digits 1-9
+ * for filled cells and '0' or '.' for blanks.
+ */
+class PuzzleFormat {
+	/** the number of characters in a puzzle line */
+	static final int LENGTH = 81;
+
+	/**
+	 * reads a puzzle line into cells
+	 * @param line - the text to parse (surrounding whitespace is ignored)
+	 * @param cells - receives the 81 digits of the puzzle (0 = blank)
+	 * @return - was line a well-formed puzzle? (if not, cells is partially overwritten)
+	 */
+	static boolean parse(CharSequence line, int[] cells) {
+		int start = 0;
+		int end = line.length();
+		while(start < end && Character.isWhitespace(line.charAt(start))) {
+			start++;
+		}
+		while(end > start && Character.isWhitespace(line.charAt(end - 1))) {
+			end--;
+		}
+		if(end - start != LENGTH) {
+			return false;
+		}
+
+		for(int i = 0; i < LENGTH; i++) {
+			char ch = line.charAt(start + i);
+			if(ch == '.' || ch == '0') {
+				cells[i] = 0;
+			} else if(ch >= '1' && ch <= '9') {
+				cells[i] = ch - '0';
+			} else {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param cells - 81 digits in row-major order (0 = blank)
+	 * @return - the puzzle line for cells (blanks are written as '0')
+	 */
+	static String format(int[] cells) {
+		char[] line = new char[LENGTH];
+		for(int i = 0; i < LENGTH; i++) {
+			line[i] = (char) ('0' + cells[i]);
+		}
+		return new String(line);
+	}
+}
@@ -0,0 +1,302 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * serves puzzles over HTTP (on the loopback interface), in the single-line
+ * format of PuzzleFormat:
+ * <pre>
+ *   GET  /generate?difficulty=HARD  a new puzzle (the difficulty defaults to MEDIUM); its
+ *                                   seed is sent in the X-Puzzle-Seed header, and
+ *                                   &seed= generates the same puzzle again
+ *   POST /solve                     the solution of the puzzle in the body
+ *                                   (422 "unsolvable" if it has none)
+ *   POST /check                     one character per cell of the board in the body:
+ *                                   '1' if the cell is valid, '0' if it conflicts
+ *   GET  /stats                     request counts and latency percentiles
+ * </pre>
+ * malformed puzzles get 400 "invalid".
+ * <p>
+ * requests are accepted on the server's dispatcher thread and handed to a
+ * fixed pool of workers through a bounded queue. the workers share nothing
+ * but the puzzle source- they work on immutable Grids with the stateless
+ * Generator, Solver and Checker. when the queue is full the request is answered with 503
+ * at once, so overload turns into fast rejections instead of an unbounded
+ * backlog and ever-growing latency.
+ */
+class PuzzleServer implements AutoCloseable {
+	/** the default number of requests waiting for a worker, per worker */
+	static final int QUEUE_PER_WORKER = 16;
+	/** the longest request body read (a puzzle line, with room for whitespace) */
+	private static final int MAX_BODY = 1024;
+
+	static final String UNSOLVABLE = "unsolvable";
+	static final String INVALID = "invalid";
+	static final String OVERLOADED = "overloaded";
+
+	/** where /generate takes puzzles from before generating its own (null = always generate) */
+	private final PuzzleSource puzzleSource;
+
+	private final HttpServer server;
+	private final ThreadPoolExecutor workers;
+
+	private final LongAdder rejected = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+	private final LatencyHistogram generateLatencies = new LatencyHistogram();
+	private final LatencyHistogram solveLatencies = new LatencyHistogram();
+	private final LatencyHistogram checkLatencies = new LatencyHistogram();
+
+	/**
+	 * an endpoint's work, run on a worker
+	 */
+	private interface Handler {
+		/** @return - the response's status code and body */
+		Response handle(HttpExchange exchange) throws IOException;
+	}
+
+	private static class Response {
+		final int status;
+		final String body;
+		/** the seed of a generated puzzle (null = not generated) */
+		final Long seed;
+
+		Response(int status, String body) {
+			this(status, body, null);
+		}
+
+		Response(int status, String body, Long seed) {
+			this.status = status;
+			this.body = body;
+			this.seed = seed;
+		}
+	}
+
+	/**
+	 * creates (but does not start) a server
+	 * @param port - the port to listen on (0 = any free port)
+	 * @param threads - the number of worker threads
+	 * @param queueCapacity - the number of requests that may wait for a worker
+	 * before more are rejected
+	 * @param puzzleSource - where /generate takes puzzles from before generating
+	 * its own (null = always generate)
+	 * @throws IOException - if the port cannot be bound
+	 */
+	PuzzleServer(int port, int threads, int queueCapacity, PuzzleSource puzzleSource) throws IOException {
+		this.puzzleSource = puzzleSource;
+
+		AtomicInteger threadCount = new AtomicInteger();
+		workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(queueCapacity), r -> {
+					Thread thread = new Thread(r, "puzzle-server-" + threadCount.getAndIncrement());
+					thread.setDaemon(true);
+					return thread;
+				});
+
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		server.setExecutor(null); // dispatch on the server's own thread; the work goes to workers
+		route("/generate", "GET", generateLatencies, this::generate);
+		route("/solve", "POST", solveLatencies, this::solve);
+		route("/check", "POST", checkLatencies, this::check);
+		server.createContext("/stats", exchange -> send(exchange, new Response(200, getSummary())));
+	}
+
+	/**
+	 * creates a server with a worker per core
+	 * @param port - the port to listen on (0 = any free port)
+	 * @param puzzleSource - where /generate takes puzzles from before generating
+	 * its own (null = always generate)
+	 */
+	PuzzleServer(int port, PuzzleSource puzzleSource) throws IOException {
+		this(port, Runtime.getRuntime().availableProcessors(),
+		     Runtime.getRuntime().availableProcessors() * QUEUE_PER_WORKER, puzzleSource);
+	}
+
+	/**
+	 * adds an endpoint whose work runs on the workers (or is rejected with 503
+	 * when their queue is full)
+	 */
+	private void route(String path, String method, LatencyHistogram latencies, Handler handler) {
+		server.createContext(path, exchange -> {
+			if(!exchange.getRequestMethod().equals(method)) {
+				exchange.getResponseHeaders().set("Allow", method);
+				send(exchange, new Response(405, method + " only"));
+				return;
+			}
+			long start = System.nanoTime();
+			try {
+				workers.execute(() -> {
+					Response response;
+					try {
+						response = handler.handle(exchange);
+					} catch(IOException | RuntimeException e) {
+						failed.increment();
+						response = new Response(500, e.toString());
+					}
+					try {
+						send(exchange, response);
+					} catch(IOException e) {
+						failed.increment(); // the client went away
+					}
+					latencies.record(System.nanoTime() - start);
+				});
+			} catch(RejectedExecutionException e) {
+				rejected.increment();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				send(exchange, new Response(503, OVERLOADED));
+			}
+		});
+	}
+
+	/** writes a response (as plain text) and closes the exchange */
+	private static void send(HttpExchange exchange, Response response) throws IOException {
+		byte[] body = (response.body + "\n").getBytes(StandardCharsets.US_ASCII);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=us-ascii");
+		if(response.seed != null) {
+			exchange.getResponseHeaders().set("X-Puzzle-Seed", response.seed.toString());
+		}
+		exchange.sendResponseHeaders(response.status, body.length);
+		try(OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+	/**
+	 * @return - the request's body as text (at most MAX_BODY bytes), or null if it is longer
+	 */
+	private static String readBody(HttpExchange exchange) throws IOException {
+		try(InputStream in = exchange.getRequestBody()) {
+			byte[] body = in.readNBytes(MAX_BODY + 1);
+			return body.length > MAX_BODY ? null : new String(body, StandardCharsets.US_ASCII);
+		}
+	}
+
+	/**
+	 * @return - the puzzle in the request's body, or null if it is not a well-formed puzzle
+	 */
+	private static Grid readPuzzle(HttpExchange exchange) throws IOException {
+		String body = readBody(exchange);
+		return body == null ? null : Grid.parse(body);
+	}
+
+	private Response generate(HttpExchange exchange) {
+		Difficulty diff = Difficulty.MEDIUM;
+		Long seed = null;
+		String query = exchange.getRequestURI().getQuery();
+		if(query != null) {
+			for(String parameter : query.split("&")) {
+				if(parameter.startsWith("difficulty=")) {
+					try {
+						diff = Difficulty.valueOf(parameter.substring("difficulty=".length()).toUpperCase(Locale.ROOT));
+					} catch(IllegalArgumentException e) {
+						return new Response(400, "unknown difficulty");
+					}
+				} else if(parameter.startsWith("seed=")) {
+					try {
+						seed = Long.valueOf(parameter.substring("seed=".length()));
+					} catch(NumberFormatException e) {
+						return new Response(400, "bad seed");
+					}
+				}
+			}
+		}
+		int[] cells = new int[PuzzleFormat.LENGTH];
+		if(seed == null && puzzleSource != null) {
+			long[] sourceSeed = new long[1];
+			if(puzzleSource.takeSeededPuzzle(diff, cells, sourceSeed)) {
+				return new Response(200, PuzzleFormat.format(cells), sourceSeed[0]);
+			}
+			if(puzzleSource.takePuzzle(diff, cells)) {
+				return new Response(200, PuzzleFormat.format(cells)); // from a source without seeds (a bank)
+			}
+		}
+		if(seed == null) {
+			seed = ThreadLocalRandom.current().nextLong(); // per-thread, so the workers never contend
+		}
+		Grid puzzle = Generator.generate(BoardShape.STANDARD, diff, seed);
+		return new Response(200, puzzle.toString(), seed);
+	}
+
+	private Response solve(HttpExchange exchange) throws IOException {
+		Grid puzzle = readPuzzle(exchange);
+		if(puzzle == null) {
+			return new Response(400, INVALID);
+		}
+		Grid solution = Solver.solve(puzzle);
+		if(solution == null) {
+			return new Response(422, UNSOLVABLE);
+		}
+		return new Response(200, solution.toString());
+	}
+
+	private Response check(HttpExchange exchange) throws IOException {
+		Grid puzzle = readPuzzle(exchange);
+		if(puzzle == null) {
+			return new Response(400, INVALID);
+		}
+		StringBuilder validity = new StringBuilder(PuzzleFormat.LENGTH);
+		for(boolean valid : Checker.check(puzzle)) {
+			validity.append(valid ? '1' : '0');
+		}
+		return new Response(200, validity.toString());
+	}
+
+	/** starts accepting requests */
+	void start() {
+		server.start();
+	}
+
+	/** @return - the port the server is listening on */
+	int getPort() {
+		return server.getAddress().getPort();
+	}
+
+	/** @return - a report of the requests served and rejected, and their latencies */
+	String getSummary() {
+		return String.format("rejected %d (overloaded), failed %d, queued %d%n", 
+				rejected.sum(), failed.sum(), workers.getQueue().size())
+				+ latencyLine("generate", generateLatencies) + "\n"
+				+ latencyLine("solve", solveLatencies) + "\n"
+				+ latencyLine("check", checkLatencies) + "\n"
+				+ cacheLine(SolutionCache.INSTANCE)
+				+ (puzzleSource instanceof PuzzleSupply ? "\n" + ((PuzzleSupply) puzzleSource).getSummary() : "");
+	}
+
+	/** @return - a line of the summary for a solution cache */
+	private static String cacheLine(SolutionCache cache) {
+		return String.format("solution cache: %d entries (%d KB of %d KB), hit rate %.1f%% (%d hits, %d misses), %d evictions",
+				cache.getSize(), cache.getMemoryUsed() >> 10, cache.getMemoryCap() >> 10, cache.getHitRate() * 100, 
+				cache.getHits(), cache.getMisses(), cache.getEvictions());
+	}
+
+	private static String latencyLine(String endpoint, LatencyHistogram latencies) {
+		return String.format("%s: %d requests, latency p50 %.1f us, p90 %.1f us, p99 %.1f us, p99.9 %.1f us",
+				endpoint, latencies.getCount(), latencies.getPercentile(50) / 1e3,
+				latencies.getPercentile(90) / 1e3, latencies.getPercentile(99) / 1e3,
+				latencies.getPercentile(99.9) / 1e3);
+	}
+
+	/**
+	 * stops accepting requests, and lets the workers finish what they have started
+	 */
+	@Override
+	public void close() {
+		server.stop(1);
+		workers.shutdown();
+	}
+}
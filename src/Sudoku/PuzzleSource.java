@@ -0,0 +1,28 @@
+package Sudoku;
+
+/**
+ * a supplier of ready-made puzzles that SudokuBoard.newBoard
+ * can draw from instead of generating a puzzle itself.
+ */
+interface PuzzleSource {
+	/**
+	 * copies a puzzle of the requested difficulty into cells, if one is available
+	 * @param diff - the requested difficulty
+	 * @param cells - receives the puzzle's 81 digits in row-major order (0 = blank)
+	 * @return - was a puzzle available? (if not, the caller must generate one itself)
+	 */
+	boolean takePuzzle(Difficulty diff, int[] cells);
+
+	/**
+	 * copies a puzzle of the requested difficulty into cells, like takePuzzle,
+	 * along with the seed that generates it again (see Generator.generate)
+	 * @param diff - the requested difficulty
+	 * @param cells - receives the puzzle's 81 digits in row-major order (0 = blank)
+	 * @param seed - receives the puzzle's seed in seed[0]
+	 * @return - was a puzzle with a seed available? (always false for sources
+	 * whose puzzles have no seed, such as PuzzleBank- use takePuzzle for those)
+	 */
+	default boolean takeSeededPuzzle(Difficulty diff, int[] cells, long[] seed) {
+		return false;
+	}
+}
@@ -0,0 +1,178 @@
+package Sudoku;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * keeps a bounded queue of ready puzzles for each Difficulty, so that
+ * starting a new game does not have to wait for generation.
+ * <p>
+ * each queue is refilled by its own background (daemon) producer thread,
+ * which generates puzzles on a private SudokuBoard and blocks whenever
+ * its queue is full. takePuzzle never blocks: when a queue is empty, the
+ * caller falls back to generating a puzzle inline.
+ * <p>
+ * every puzzle is queued with the seed it was generated from, so that
+ * takeSeededPuzzle can hand both out.
+ */
+class PuzzleSupply implements PuzzleSource {
+	/** the default number of puzzles kept ready per difficulty */
+	static final int DEFAULT_CAPACITY = 8;
+
+	private final Map<Difficulty, Producer> producers = new EnumMap<>(Difficulty.class);
+
+	/**
+	 * a queued puzzle, and the seed that generates it again
+	 */
+	private static final class SeededPuzzle {
+		final long seed;
+		final PackedBoard puzzle;
+
+		SeededPuzzle(long seed, PackedBoard puzzle) {
+			this.seed = seed;
+			this.puzzle = puzzle;
+		}
+	}
+
+	/**
+	 * generates puzzles of one difficulty into a queue
+	 */
+	private static class Producer implements Runnable {
+		private final Difficulty diff;
+		private final BlockingQueue<SeededPuzzle> queue;
+		private final SudokuBoard board = new SudokuBoard();
+		private final SplittableRandom seeds;
+		private final AtomicLong puzzlesProduced = new AtomicLong();
+		private final AtomicLong generationNanos = new AtomicLong();
+
+		Producer(Difficulty diff, int capacity, SplittableRandom seeds) {
+			this.diff = diff;
+			this.queue = new ArrayBlockingQueue<>(capacity);
+			this.seeds = seeds;
+		}
+
+		@Override
+		public void run() {
+			try {
+				while(!Thread.currentThread().isInterrupted()) {
+					long start = System.nanoTime();
+					long seed = seeds.nextLong();
+					board.newBoard(diff, seed);
+					SeededPuzzle puzzle = new SeededPuzzle(seed, board.toPacked());
+					generationNanos.addAndGet(System.nanoTime() - start);
+					puzzlesProduced.incrementAndGet();
+
+					queue.put(puzzle); // waits while the queue is full
+				}
+			} catch(InterruptedException e) {
+				// stopped by shutdown()
+			}
+		}
+	}
+
+	/**
+	 * creates (but does not start) a supply
+	 * @param capacity - the number of puzzles to keep ready per difficulty
+	 */
+	PuzzleSupply(int capacity) {
+		SplittableRandom seeds = new SplittableRandom(); // split so the producers never share a generator
+		for(Difficulty diff : Difficulty.values()) {
+			producers.put(diff, new Producer(diff, capacity, seeds.split()));
+		}
+	}
+
+	PuzzleSupply() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	private Thread[] threads;
+
+	/**
+	 * starts the background producers
+	 */
+	synchronized void start() {
+		if(threads != null) {
+			return;
+		}
+		threads = new Thread[producers.size()];
+		int i = 0;
+		for(Producer producer : producers.values()) {
+			Thread thread = new Thread(producer, "puzzle-supply-" + producer.diff.name().toLowerCase(Locale.ROOT));
+			thread.setDaemon(true); // never keeps the application alive
+			thread.setPriority(Thread.MIN_PRIORITY); // stay out of the way of the UI
+			thread.start();
+			threads[i++] = thread;
+		}
+	}
+
+	/**
+	 * stops the background producers (puzzles already queued can still be taken)
+	 */
+	synchronized void shutdown() {
+		if(threads == null) {
+			return;
+		}
+		for(Thread thread : threads) {
+			thread.interrupt();
+		}
+		threads = null;
+	}
+
+	@Override
+	public boolean takePuzzle(Difficulty diff, int[] cells) {
+		return takeSeededPuzzle(diff, cells, new long[1]);
+	}
+
+	@Override
+	public boolean takeSeededPuzzle(Difficulty diff, int[] cells, long[] seed) {
+		SeededPuzzle taken = producers.get(diff).queue.poll();
+		if(taken == null) {
+			return false;
+		}
+		taken.puzzle.copyDigits(cells);
+		seed[0] = taken.seed;
+		return true;
+	}
+
+	/**
+	 * @param diff - a difficulty
+	 * @return - the number of puzzles of that difficulty ready to be taken
+	 */
+	int getQueueDepth(Difficulty diff) {
+		return producers.get(diff).queue.size();
+	}
+
+	/**
+	 * @param diff - a difficulty
+	 * @return - the number of puzzles of that difficulty generated so far
+	 */
+	long getPuzzlesProduced(Difficulty diff) {
+		return producers.get(diff).puzzlesProduced.get();
+	}
+
+	/**
+	 * @param diff - a difficulty
+	 * @return - the rate (puzzles per second of generation time) at which that
+	 * difficulty's queue is refilled. 0 if nothing has been generated yet
+	 */
+	double getRefillRate(Difficulty diff) {
+		Producer producer = producers.get(diff);
+		long nanos = producer.generationNanos.get();
+		return nanos == 0 ? 0 : producer.puzzlesProduced.get() * 1e9 / nanos;
+	}
+
+	/** @return - a line with each difficulty's queue depth and refill rate */
+	String getSummary() {
+		StringBuilder summary = new StringBuilder("supply:");
+		for(Difficulty diff : Difficulty.values()) {
+			summary.append(String.format(" %s %d ready (refill %.1f/s)", diff.name().toLowerCase(Locale.ROOT),
+					getQueueDepth(diff), getRefillRate(diff)));
+		}
+		return summary.toString();
+	}
+}
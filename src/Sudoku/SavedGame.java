@@ -0,0 +1,173 @@
+package Sudoku;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * a snapshot of a game in progress- the board's digits and givens, the
+ * player's selections and correctness highlights, and the time played-
+ * with the compact binary form that Autosaver writes.
+ * <p>
+ * record format (all numbers little-endian):
+ * <pre>
+ *   0   int    MAGIC
+ *   4   short  VERSION
+ *   6   byte   the board's box size
+ *   7   byte   flags (LIVE_CHECK, PENCIL_MARKS)
+ *   8   long   sequence number (higher = newer)
+ *   16  long   milliseconds played
+ *   24  2 bytes per cell, row-major: the digit (0 = blank), then the cell's
+ *       flags (GIVEN, SELECTED, CORRECT, INCORRECT)
+ *   ... int    CRC32 of everything before it
+ * </pre>
+ * a save file holds two SLOT_SIZE slots, written alternately, so a write
+ * torn by a crash still leaves the previous record intact.
+ */
+class SavedGame {
+	static final int MAGIC = 0x474B4453; // "SDKG" in file byte order
+	static final short VERSION = 1;
+	static final int HEADER_SIZE = 24;
+	/** the room taken by each of a save file's two records (enough for a 25x25 board) */
+	static final int SLOT_SIZE = 1280;
+
+	// game flags
+	static final int LIVE_CHECK = 1;
+	static final int PENCIL_MARKS = 2;
+
+	// cell flags
+	static final int GIVEN = 1;
+	static final int SELECTED = 2;
+	static final int CORRECT = 4;
+	static final int INCORRECT = 8;
+
+	final int boxSize;
+	final int flags;
+	final long elapsedMillis;
+	/** each cell's digit (row-major, 0 = blank) */
+	final int[] digits;
+	/** each cell's flags (GIVEN, SELECTED, CORRECT, INCORRECT) */
+	final int[] cellFlags;
+	/** set when the game is read back from a file (0 for a new snapshot) */
+	final long sequence;
+
+	/**
+	 * @param boxSize - the width (in cells) of the board's boxes
+	 * @param flags - the game's flags (LIVE_CHECK, PENCIL_MARKS)
+	 * @param elapsedMillis - the time played so far
+	 * @param digits - each cell's digit (row-major, 0 = blank); not copied
+	 * @param cellFlags - each cell's flags; not copied
+	 */
+	SavedGame(int boxSize, int flags, long elapsedMillis, int[] digits, int[] cellFlags) {
+		this(boxSize, flags, elapsedMillis, digits, cellFlags, 0);
+	}
+
+	private SavedGame(int boxSize, int flags, long elapsedMillis, int[] digits, int[] cellFlags, long sequence) {
+		this.boxSize = boxSize;
+		this.flags = flags;
+		this.elapsedMillis = elapsedMillis;
+		this.digits = digits;
+		this.cellFlags = cellFlags;
+		this.sequence = sequence;
+	}
+
+	/** @return - the number of bytes encode() writes */
+	int getEncodedSize() {
+		return HEADER_SIZE + 2 * digits.length + 4;
+	}
+
+	/**
+	 * writes the game as a record
+	 * @param sequence - the record's sequence number
+	 * @return - the record, ready to be read (position 0)
+	 */
+	ByteBuffer encode(long sequence) {
+		ByteBuffer record = ByteBuffer.allocate(getEncodedSize()).order(ByteOrder.LITTLE_ENDIAN);
+		record.putInt(MAGIC);
+		record.putShort(VERSION);
+		record.put((byte) boxSize);
+		record.put((byte) flags);
+		record.putLong(sequence);
+		record.putLong(elapsedMillis);
+		for(int cell = 0; cell < digits.length; cell++) {
+			record.put((byte) digits[cell]);
+			record.put((byte) cellFlags[cell]);
+		}
+		CRC32 crc = new CRC32();
+		crc.update(record.array(), 0, record.position());
+		record.putInt((int) crc.getValue());
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * reads a record written by encode
+	 * @param record - the record (little-endian), starting at its position
+	 * @return - the game, or null if the record is missing, corrupt or of an unknown version
+	 */
+	static SavedGame decode(ByteBuffer record) {
+		int start = record.position();
+		if(record.remaining() < HEADER_SIZE || record.getInt(start) != MAGIC || 
+		   record.getShort(start + 4) != VERSION) {
+			return null;
+		}
+		int boxSize = record.get(start + 6);
+		if(boxSize < BoardShape.MIN_BOX_SIZE || boxSize > BoardShape.MAX_BOX_SIZE) {
+			return null;
+		}
+		int cells = boxSize * boxSize * boxSize * boxSize;
+		int crcOffset = start + HEADER_SIZE + 2 * cells;
+		if(record.limit() < crcOffset + 4) {
+			return null;
+		}
+		CRC32 crc = new CRC32();
+		ByteBuffer covered = record.duplicate();
+		covered.position(start).limit(crcOffset);
+		crc.update(covered);
+		if(record.getInt(crcOffset) != (int) crc.getValue()) {
+			return null;
+		}
+
+		int[] digits = new int[cells];
+		int[] cellFlags = new int[cells];
+		for(int cell = 0; cell < cells; cell++) {
+			digits[cell] = record.get(start + HEADER_SIZE + 2 * cell);
+			cellFlags[cell] = record.get(start + HEADER_SIZE + 2 * cell + 1);
+			if(digits[cell] < 0 || digits[cell] > boxSize * boxSize) {
+				return null;
+			}
+		}
+		return new SavedGame(boxSize, record.get(start + 7), record.getLong(start + 16), 
+		                     digits, cellFlags, record.getLong(start + 8));
+	}
+
+	/**
+	 * reads the newest intact record of a save file
+	 * @param path - the save file
+	 * @return - the game, or null if the file does not exist or holds no intact record
+	 * @throws IOException - if the file exists but cannot be read
+	 */
+	static SavedGame readLatest(Path path) throws IOException {
+		byte[] bytes;
+		try {
+			bytes = Files.readAllBytes(path);
+		} catch(NoSuchFileException e) {
+			return null;
+		}
+		ByteBuffer file = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		SavedGame latest = null;
+		for(int slot = 0; slot * SLOT_SIZE < bytes.length; slot++) {
+			file.limit(Math.min(bytes.length, (slot + 1) * SLOT_SIZE)).position(slot * SLOT_SIZE);
+			SavedGame game = decode(file);
+			if(game != null && (latest == null || game.sequence > latest.sequence)) {
+				latest = game;
+			}
+			file.limit(bytes.length);
+		}
+		return latest;
+	}
+}
@@ -0,0 +1,181 @@
+package Sudoku;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * remembers the solutions of recently solved puzzles, so that solving a puzzle
+ * seen before (a daily puzzle, a shared link) is a hash and a map lookup
+ * instead of a search.
+ * <p>
+ * entries are keyed by the GridHash of the puzzle's givens, hold the solution's
+ * digits a byte each, and are evicted least recently used first once their
+ * (estimated) memory passes the cap. a hit is only returned if the solution
+ * agrees with every given, so even a hash collision can't hand back a wrong
+ * solution.
+ * <p>
+ * thread-safe (every operation holds the cache's lock for a map operation).
+ */
+class SolutionCache {
+	/** the default memory cap: 16 MB, about 80,000 9x9 solutions */
+	static final long DEFAULT_MEMORY_CAP = 16L << 20;
+
+	/**
+	 * the cache used by Solver and SudokuBoard (capped by the system property
+	 * sudoku.solutionCacheBytes, or DEFAULT_MEMORY_CAP; 0 disables it)
+	 */
+	static final SolutionCache INSTANCE = new SolutionCache(Long.getLong("sudoku.solutionCacheBytes", DEFAULT_MEMORY_CAP));
+
+	/** the estimated heap of an entry besides its digits: map entry, key and array header */
+	private static final int ENTRY_OVERHEAD = 40 + 32 + 16;
+
+	/** iterates from least to most recently used */
+	private final LinkedHashMap<GridHash, byte[]> entries = new LinkedHashMap<>(64, 0.75f, true);
+	private long memoryCap;
+	private long memoryUsed;
+
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param memoryCap - the most memory (in bytes, estimated) the entries may take
+	 */
+	SolutionCache(long memoryCap) {
+		this.memoryCap = memoryCap;
+	}
+
+	/** @return - the estimated memory taken by an entry for a board of that many cells */
+	private static long entryBytes(int cells) {
+		return ENTRY_OVERHEAD + ((cells + 7) & ~7);
+	}
+
+	/**
+	 * @param puzzle - a puzzle (only its givens are looked at)
+	 * @return - the cached solution of the puzzle's givens, or null if there is none
+	 */
+	Grid get(Grid puzzle) {
+		GridHash key = GridHash.of(puzzle);
+		byte[] solution;
+		synchronized(this) {
+			solution = entries.get(key);
+		}
+		int[] cells = solution == null ? null : toCells(puzzle, solution);
+		synchronized(this) {
+			if(cells == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+		}
+		return puzzle.withDigits(cells);
+	}
+
+	/**
+	 * @return - the digits of solution, or null if they aren't a solution of
+	 * the puzzle's givens (a different puzzle with the same hash)
+	 */
+	private static int[] toCells(Grid puzzle, byte[] solution) {
+		if(solution.length != puzzle.getShape().cells) {
+			return null;
+		}
+		int[] cells = new int[solution.length];
+		for(int cell = 0; cell < cells.length; cell++) {
+			cells[cell] = solution[cell];
+			if(puzzle.isGiven(cell) && puzzle.getDigit(cell) != cells[cell]) {
+				return null;
+			}
+		}
+		return cells;
+	}
+
+	/**
+	 * remembers a solution, evicting the least recently used ones if it takes
+	 * the cache over its memory cap
+	 * @param puzzle - the puzzle (only its givens are looked at)
+	 * @param solution - the puzzle's solution
+	 */
+	void put(Grid puzzle, Grid solution) {
+		int cells = solution.getShape().cells;
+		if(entryBytes(cells) > memoryCap) {
+			return;
+		}
+		GridHash key = GridHash.of(puzzle);
+		byte[] digits = new byte[cells];
+		for(int cell = 0; cell < cells; cell++) {
+			digits[cell] = (byte) solution.getDigit(cell);
+		}
+		synchronized(this) {
+			byte[] old = entries.put(key, digits);
+			if(old == null) {
+				memoryUsed += entryBytes(cells);
+			}
+			evictToCap();
+		}
+	}
+
+	/** drops least recently used entries until the cache is within its cap (must hold the lock) */
+	private void evictToCap() {
+		Iterator<Map.Entry<GridHash, byte[]>> eldest = entries.entrySet().iterator();
+		while(memoryUsed > memoryCap && eldest.hasNext()) {
+			memoryUsed -= entryBytes(eldest.next().getValue().length);
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * @param bytes - the most memory (estimated) the entries may take; entries
+	 * over a lowered cap are evicted at once (0 empties and disables the cache)
+	 */
+	synchronized void setMemoryCap(long bytes) {
+		memoryCap = bytes;
+		evictToCap();
+	}
+
+	synchronized long getMemoryCap() {
+		return memoryCap;
+	}
+
+	/** @return - the estimated memory taken by the entries */
+	synchronized long getMemoryUsed() {
+		return memoryUsed;
+	}
+
+	/** @return - the number of solutions cached */
+	synchronized int getSize() {
+		return entries.size();
+	}
+
+	synchronized long getHits() {
+		return hits;
+	}
+
+	synchronized long getMisses() {
+		return misses;
+	}
+
+	synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/** @return - the fraction of lookups that found a solution (0 if there were none) */
+	synchronized double getHitRate() {
+		long lookups = hits + misses;
+		return lookups == 0 ? 0 : (double) hits / lookups;
+	}
+
+	/** zeroes the hit, miss and eviction counts (the entries stay) */
+	synchronized void resetCounters() {
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/** forgets every solution */
+	synchronized void clear() {
+		entries.clear();
+		memoryUsed = 0;
+	}
+}
@@ -0,0 +1,105 @@
+package Sudoku;
+
+/**
+ * solves grids with dancing links (see DancingLinksSolver).
+ * <p>
+ * stateless- the solvers are kept per thread (one per box size), so any
+ * number of threads can solve at once without locking or sharing a solver.
+ * solutions are remembered in SolutionCache.INSTANCE, so a puzzle solved
+ * before is not searched again.
+ * <p>
+ * each call of solve is reported as a SolveEvent and added to SudokuMetrics,
+ * as SudokuBoard.solve is.
+ */
+final class Solver {
+	/** the calling thread's solvers, indexed by box size (created on first use) */
+	private static final ThreadLocal<DancingLinksSolver[]> SOLVERS = 
+			ThreadLocal.withInitial(() -> new DancingLinksSolver[BoardShape.MAX_BOX_SIZE + 1]);
+
+	private Solver() {
+	}
+
+	/**
+	 * @param shape - the shape of the boards to solve
+	 * @return - the calling thread's dancing links solver for that shape
+	 * (not to be handed to another thread)
+	 */
+	static DancingLinksSolver dancingLinks(BoardShape shape) {
+		DancingLinksSolver[] solvers = SOLVERS.get();
+		if(solvers[shape.boxSize] == null) {
+			solvers[shape.boxSize] = new DancingLinksSolver(shape);
+		}
+		return solvers[shape.boxSize];
+	}
+
+	/**
+	 * solves the grid's givens (anything else on the grid is ignored)
+	 * @param grid - the puzzle
+	 * @return - the solution (the givens, with every other cell filled), or null if there is none
+	 */
+	static Grid solve(Grid grid) {
+		long start = System.nanoTime();
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		Grid puzzle = grid.withoutEntries();
+		event.blanks = puzzle.countBlanks();
+		Grid solution = search(grid, puzzle, event);
+
+		event.backend = SolverBackend.DANCING_LINKS.name();
+		event.boxSize = grid.getShape().boxSize;
+		event.solved = solution != null;
+		event.commit();
+		SudokuMetrics.INSTANCE.recordSolve(event, System.nanoTime() - start);
+		return solution;
+	}
+
+	/**
+	 * solves puzzle from the cache, or else with dancing links
+	 * @param grid - the grid being solved
+	 * @param puzzle - the grid's givens
+	 * @param event - receives whether the cache was hit, and the work done by the search
+	 * @return - the solution, or null if there is none
+	 */
+	private static Grid search(Grid grid, Grid puzzle, SolveEvent event) {
+		Grid cached = SolutionCache.INSTANCE.get(puzzle);
+		if(cached != null) {
+			event.cacheHit = true;
+			return cached;
+		}
+		if(Checker.hasConflicts(puzzle)) { // colliding givens can't be solved
+			return null;
+		}
+		int[] cells = puzzle.getCells();
+		DancingLinksSolver solver = dancingLinks(grid.getShape());
+		boolean solved = solver.solve(cells);
+		event.nodesVisited = solver.getSteps();
+		event.backtracks = solver.getBacktracks();
+		if(!solved) {
+			return null;
+		}
+		Grid solution = grid.withDigits(cells);
+		SolutionCache.INSTANCE.put(puzzle, solution);
+		return solution;
+	}
+
+	/**
+	 * counts the solutions of the grid as it stands (every digit on it, given or not)
+	 * @param grid - the grid
+	 * @param limit - the number of solutions at which to stop counting
+	 * @return - the number of solutions, at most limit
+	 */
+	static int countSolutions(Grid grid, int limit) {
+		if(Checker.hasConflicts(grid)) {
+			return 0;
+		}
+		return dancingLinks(grid.getShape()).countSolutions(grid.getCells(), limit);
+	}
+
+	/**
+	 * @param grid - a puzzle
+	 * @return - does the grid's givens have exactly one solution?
+	 */
+	static boolean hasUniqueSolution(Grid grid) {
+		return countSolutions(grid.withoutEntries(), 2) == 1;
+	}
+}
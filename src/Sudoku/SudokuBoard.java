@@ -1,25 +1,84 @@
 package Sudoku;
 
-import java.util.ArrayList;
-import java.util.Random;
-import java.util.Collections;
+import java.util.OptionalLong;
+import java.util.SplittableRandom;
+import java.util.stream.Stream;
 
 /**
- * represents a difficultly level of a Sudoku game
+ * represents a difficultly level of a Sudoku game:
+ * the (minimum) number of blanks, and the range of solving
+ * techniques a puzzle's hardest step must fall in
  */
 enum Difficulty{
-	TRIVIAL (30), EASY (35), MEDIUM (40),
-	HARD (45), EXTREME (50);
+	TRIVIAL (30, Technique.HIDDEN_SINGLE, Technique.HIDDEN_SINGLE), 
+	EASY (35, Technique.HIDDEN_SINGLE, Technique.NAKED_SINGLE), 
+	MEDIUM (40, Technique.NAKED_SINGLE, Technique.LOCKED_CANDIDATES),
+	HARD (45, Technique.LOCKED_CANDIDATES, Technique.SWORDFISH), 
+	EXTREME (50, Technique.NAKED_PAIR, Technique.TRIAL_AND_ERROR);
 	
 	private int numBlanks;
+	private Technique easiestTechnique;
+	private Technique hardestTechnique;
 	
-	private Difficulty(int blanks) {
+	private Difficulty(int blanks, Technique easiest, Technique hardest) {
 		numBlanks = blanks;
+		easiestTechnique = easiest;
+		hardestTechnique = hardest;
 	}
 	
 	public int getNumBlanks() {
 		return numBlanks;
 	}
+	
+	/**
+	 * @param cells - the number of cells on the board
+	 * @return - the number of blanks for a board of that many cells
+	 * (getNumBlanks() is for 9x9 boards, and is scaled to the same proportion)
+	 */
+	public int getNumBlanks(int cells) {
+		return numBlanks * cells / 81;
+	}
+	
+	/**
+	 * @param rating - a puzzle's rating
+	 * @return - is the puzzle too easy for this difficulty?
+	 */
+	public boolean isTooEasy(Rating rating) {
+		return rating.getHardestTechnique() == null || 
+		       rating.getHardestTechnique().compareTo(easiestTechnique) < 0;
+	}
+	
+	/**
+	 * @param rating - a puzzle's rating
+	 * @return - does the puzzle's hardest technique fall in this difficulty's range?
+	 */
+	public boolean accepts(Rating rating) {
+		return !isTooEasy(rating) && rating.getHardestTechnique().compareTo(hardestTechnique) <= 0;
+	}
+}
+
+/**
+ * the algorithms that SudokuBoard can use to solve a board
+ */
+enum SolverBackend {
+	/** 
+	 * repeatedly places digits that are the only option for their row, column or box.
+	 * (cannot finish puzzles that need any other deduction)
+	 */
+	FORCED_DIGITS,
+	/** exact cover search (Algorithm X with dancing links) */
+	DANCING_LINKS
+}
+
+/**
+ * the ways SudokuBoard can fill a board with a random solved grid
+ * (the first step of creating a new game)
+ */
+enum GridFillMode {
+	/** transforms a seed grid at random (constant time) */
+	SYMMETRY_TRANSFORM,
+	/** fills cells one by one with random backtracking (slower, but any grid can come out) */
+	BACKTRACKING
 }
 
 /** predefines the abstracted behavior of SudokuBoard. */
@@ -29,10 +88,25 @@ interface GameBoard {
 	 * @param diff - the requested difficulty for the game
 	 */
 	void newBoard(Difficulty diff);
+	
+	/**
+	 * @return - the width (in cells) of a box; the board is 
+	 * getSize() = getBoxSize() * getBoxSize() cells wide
+	 */
+	int getBoxSize();
+	
+	/** @return - the number of rows (and columns, boxes and digits) of the board */
+	int getSize();
+	
+	/**
+	 * changes the size of the board, leaving it blank
+	 * @param boxSize - the width (in cells) of a box (2-5: 4x4 to 25x25 boards)
+	 */
+	void setBoxSize(int boxSize);
 
 	/** 
 	 * attempts to place guess at (row, col)
-	 * @param guess - the player's numerical guess for (row, col) 
+	 * @param guess - the player's numerical guess for (row, col) (0 to getSize())
 	 * @param row - the cell's row (in the board)
 	 * @param col - the cell's column (in the board)
 	 * @return - was the guess placed successfully?
@@ -42,6 +116,14 @@ interface GameBoard {
 	/** @return - the number at the position (row, col) */
 	int getDigitAt(int row, int col);
 	
+	/**
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - a mask of the digits that can still go in the cell, given the
+	 * digits in its row, column and box (bit d - 1 = digit d; 0 if the cell is filled)
+	 */
+	long getCandidates(int row, int col);
+	
 	/**
 	 * checks if the cell is permanent (cannot be modified) 
 	 * @param row - the cell's row (in the board)
@@ -57,97 +139,230 @@ interface GameBoard {
 	 */
 	boolean[][] check();
 	
+	/**
+	 * checks if the cell holds a digit that shares its row, column
+	 * or box with the same digit
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - does the cell conflict with another?
+	 */
+	boolean isCellConflicting(int row, int col);
+	
 	/**
 	 * solves the board, overwriting any incorrect digits.
 	 */
 	void solve();
+	
+	/**
+	 * lists the solutions of the board as it stands (every digit on it,
+	 * given or entered), without changing the board
+	 * @return - a lazy stream of the solutions, each the board's digits in
+	 * row-major order (the search runs only as far as the stream is read)
+	 */
+	Stream<int[]> solutions();
+	
+	/**
+	 * selects the algorithm used by solve()
+	 * @param backend - the solver to use
+	 */
+	void setSolverBackend(SolverBackend backend);
 }
 
 /**
  * holds the data of a Sudoku Board and provides
  * methods for user interaction with that board. 
+ * <p>
+ * the board is size x size cells, divided into boxes of boxSize x boxSize
+ * (9x9 with 3x3 boxes unless another box size is chosen).
  */
 public class SudokuBoard implements GameBoard{
+	/** the board's geometry (size, units and peers) */
+	private BoardShape shape;
+	/** the number of rows (and columns, boxes and digits) */
+	private int size;
+	
+	/**
+	 * the game board- holds digits. 
+	 * 0's represent blank spaces.
+	 */
+	private int[][] board;
+	
 	/**
-	 * checks if the num is permanent.
-	 * @param num - the num in question
-	 * @return - is the num permanent?
+	 * one bit per cell (bit row * size + col), set when the cell's digit
+	 * is "permanent"- placed there by the game, not the player.
 	 */
-	private boolean isPermanent(int num) {
-		return num > 9;
+	private long[] permanentCells;
+	
+	/**
+	 * marks the cell (row, col) as permanent (or not)
+	 */
+	private void setPermanent(int row, int col, boolean permanent) {
+		int cell = row * size + col;
+		if(permanent) {
+			permanentCells[cell >>> 6] |= 1L << cell;
+		} else {
+			permanentCells[cell >>> 6] &= ~(1L << cell);
+		}
 	}
-
+	
+	/** creates a blank 9x9 board */
+	public SudokuBoard() {
+		this(3);
+	}
+	
 	/**
-	 * converts num to permanent (adds 10)
-	 * @param num - the number to convert to permament
-	 * @return - the converted num 
+	 * creates a blank board
+	 * @param boxSize - the width (in cells) of a box (2-5: 4x4 to 25x25 boards)
 	 */
-	private int permifyDigit(int digit) {
-		return (isPermanent(digit)) ? digit : digit + 10;
+	public SudokuBoard(int boxSize) {
+		setBoxSize(boxSize);
 	}
 	
 	/**
-	 * converts num from permanent to non-permanent (subtracts 10)
-	 * @param num - the permanent number to revert
-	 * @return - the converted num 
+	 * changes the size of the board, leaving it blank
+	 * @param boxSize - the width (in cells) of a box (2-5: 4x4 to 25x25 boards)
 	 */
-	private int UnpermifyDigit(int digit) {
-		return (isPermanent(digit)) ? digit - 10 : digit;
+	public void setBoxSize(int boxSize) {
+		shape = BoardShape.of(boxSize);
+		size = shape.size;
+		board = new int[size][size];
+		permanentCells = new long[(shape.cells + 63) / 64];
+		engine = new CandidateEngine(shape);
+		conflicts = new ConflictTracker(shape);
+		candidateGrid = new CandidateGrid(shape, conflicts);
+		dancingLinks = null;
+		seed = OptionalLong.empty();
+	}
+	
+	/** @return - the width (in cells) of a box */
+	public int getBoxSize() {
+		return shape.boxSize;
+	}
+	
+	/** @return - the number of rows (and columns, boxes and digits) of the board */
+	public int getSize() {
+		return size;
 	}
 	
 	/**
-	 * the game board- holds digits. 
-	 * a digit that is greater than 9 represents
-	 * a "permanent" digit- one placed there by the
-	 * game, not the player. (Permanent digits are 10
-	 * higher than their non-permanent counterparts.)
-	 * 0's represent blank spaces.
+	 * @return - a copy of the board (its digits, permanent cells, solver
+	 * backend, fill mode and puzzle source), for another thread to work on
 	 */
-	private int[][] board;
-
-	{
-		board = new int[9][9];
+	SudokuBoard copy() {
+		SudokuBoard copy = new SudokuBoard(shape.boxSize);
+		copy.copyFrom(this);
+		copy.solverBackend = solverBackend;
+		copy.gridFillMode = gridFillMode;
+		copy.puzzleSource = puzzleSource;
+		copy.seeds = seeds.split();
+		return copy;
 	}
 	
 	/**
-	 * Contains information about a "box" (3x3 square
-	 * of cells within the board that can only contain
-	 * one of each digit)
+	 * replaces the board's digits and permanent cells with other's
+	 * (changing the board's size to match, if needed)
+	 * @param other - the board to copy
 	 */
-	private class Box {
-		private int startRow;
-		private int startCol; 
-
-		/**
-		 * creates an instance of Box that holds the coordinates
-		 * of the box that encloses the cell
-		 * 
-		 * @param row - the cell's row (in the board)
-		 * @param col - the cell's column (in the board)
-		 */
-		public Box(int row, int col) {
-			startRow = (row / 3) * 3;
-			startCol = (col / 3) * 3;
+	void copyFrom(SudokuBoard other) {
+		if(other.shape != shape) {
+			setBoxSize(other.shape.boxSize);
 		}
-		
-		/**
-		 * @return - an array of row indices included in the box.
-		 */
-		public int[] getRows() {
-			int[] rows = {startRow, startRow+1, startRow+2};
-			return rows;
+		for(int r = 0; r < size; r++) {
+			System.arraycopy(other.board[r], 0, board[r], 0, size);
 		}
-		
-		/**
-		 * @return - an array of col indices included in the box.
-		 */
-		public int[] getCols() {
-			int[] cols = {startCol, startCol+1, startCol+2};
-			return cols;
+		System.arraycopy(other.permanentCells, 0, permanentCells, 0, permanentCells.length);
+		seed = other.seed;
+		loadEngine();
+		loadConflicts();
+	}
+	
+	/** told about the progress of newBoard and solve (null = no reports) */
+	private ProgressListener progressListener;
+	
+	/**
+	 * @param listener - receives the progress of newBoard and solve, and may
+	 * cancel them (see ProgressListener); null = no reports
+	 */
+	void setProgressListener(ProgressListener listener) {
+		progressListener = listener;
+	}
+	
+	private void reportProgress(String phase, long work) {
+		if(progressListener != null) {
+			progressListener.progress(phase, 1, work); // solves have a single attempt
 		}
-		
 	}
 	
+	/**
+	 * tracks the digits used by each row, column and box of board,
+	 * so that placements can be tested without rescanning the board.
+	 * kept in sync with board by the generation and solving algorithms.
+	 */
+	private CandidateEngine engine;
+	
+	/** the algorithm used by solve() */
+	private SolverBackend solverBackend = SolverBackend.DANCING_LINKS;
+	
+	/** created on first use by getDancingLinks() */
+	private DancingLinksSolver dancingLinks;
+	
+	/** @return - this board's dancing links solver */
+	private DancingLinksSolver getDancingLinks() {
+		if(dancingLinks == null) {
+			dancingLinks = new DancingLinksSolver(shape);
+		}
+		return dancingLinks;
+	}
+	
+	/**
+	 * rebuilds engine from the digits currently on the board
+	 */
+	private void loadEngine() {
+		engine.clear();
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				if(board[r][c] != 0) {
+					engine.place(getDigitAt(r, c), r, c);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * counts the digits in each row, column and box of board,
+	 * so that collisions are known without scanning the board.
+	 * updated by putGuess, and reloaded after every other change.
+	 */
+	private ConflictTracker conflicts;
+	
+	/**
+	 * the candidates (pencil marks) of each blank cell, derived from conflicts.
+	 * updated by putGuess, and reloaded with conflicts.
+	 */
+	private CandidateGrid candidateGrid;
+	
+	/**
+	 * rebuilds conflicts (and candidateGrid) from the digits currently on the board
+	 */
+	private void loadConflicts() {
+		conflicts.clear();
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				conflicts.place(board[r][c], r, c);
+			}
+		}
+		candidateGrid.load(board);
+	}
+	
+	/**
+	 * counts of the work done by the board's algorithms, reported
+	 * (per operation) in flight recorder events and SudokuMetrics
+	 */
+	private long validityChecks;
+	private long solverNodes;
+	private long solverBacktracks;
+	private long removabilityChecks;
+	
 	/**
 	 * checks if the given cell (row, col) on the board
 	 * holds a number that is valid (according to the game
@@ -157,239 +372,266 @@ public class SudokuBoard implements GameBoard{
 	 * @return - is the cell's number valid?
 	 */
 	private boolean isCellValid(int row, int col) {
-		int digit = getDigitAt(row, col);
-		
-		if(digit == 0) { // a blank cell is always valid
-			return true;
-		}
-
-		// check for shared digits in row
-		for(int c = 0; c < 9; c++) {
-			if(c != col && getDigitAt(row, c) == digit) { // shared digit!
-				return false;
-			}
-		}
-		
-		// check for shared digits in column
-		for(int r = 0; r < 9; r++) {
-			if(r != row && getDigitAt(r, col) == digit) { // shared digit!
-				return false;
-			}
-		}
-		
-		// check for shared digits in box
-		Box enclosingBox = new Box(row, col);
-		for(int r : enclosingBox.getRows()) {
-			for(int c : enclosingBox.getCols()) {
-				if(r == row && c == col) // ignore the cell itself
-					continue;
-				
-				if(getDigitAt(r, c) == getDigitAt(row, col)) {
-					return false;
-				}
-			}
-		}
-		
-		return true;
+		validityChecks++;
+		return !conflicts.isConflicting(board[row][col], row, col);
 	}
 	
 	/**
 	 * checks if the digit in board[row][col] is the only
-	 * possible digit to be placed in that location.
-	 * (and thus the digit can be removed from the board
-	 * without adding to the board's possible solutions)
-	 * <p>
-	 * 
-	 * 
+	 * possible digit to be placed in that location
+	 * (see Generator.isCellRemovable, which generation uses too)
 	 * @param row - the cell's row (in the board)
 	 * @param col - the cell's column (in the board)
 	 * @return - is the digit the only possible digit for this position?
 	 */
 	private boolean isCellRemovable(int row, int col) {
-		int digit = getDigitAt(row, col);
-		board[row][col] = 0; // prevent false collisions
-		boolean isRequiredInRow = true;
-		boolean isRequiredInCol = true; 
-		boolean isRequiredInBox = true;
-		
-		// check cells in the same column for other valid positions
-		for(int r = 0; r < 9; r++) {
-			if(r == row) // skip the position already known to be valid
-				continue;
-			
-			if(getDigitAt(r, col) == 0) {
-				// test the position
-				board[r][col] = digit;
-				if(isCellValid(r, col)) { // another valid position found
-					isRequiredInRow = false;
-				}
-				board[r][col] = 0;
+		removabilityChecks++;
+		return Generator.isCellRemovable(shape, solveCells, engine, row, col);
+	}
+	
+	/**
+	 * the board's digits in row-major order, as read by isCellRemovable.
+	 * filled by solve() and kept in step with board by solve(row, col),
+	 * so the search doesn't copy the board at every step.
+	 */
+	private int[] solveCells;
+	
+	/** how newBoard fills the solved grid it removes digits from */
+	private GridFillMode gridFillMode = GridFillMode.SYMMETRY_TRANSFORM;
+	
+	/**
+	 * @param mode - how new boards should be filled before digits are removed
+	 */
+	void setGridFillMode(GridFillMode mode) {
+		gridFillMode = mode;
+	}
+	
+	/** where newBoard draws the seeds of the puzzles it generates (see setSeeds) */
+	private SplittableRandom seeds = new SplittableRandom();
+	/** the seed of the puzzle on the board (empty if it was not generated by newBoard) */
+	private OptionalLong seed = OptionalLong.empty();
+	
+	/**
+	 * @param seeds - where newBoard should draw the seeds of the puzzles it
+	 * generates (e.g. a split of a generator shared by several boards), so that
+	 * a run of puzzles can be repeated
+	 */
+	void setSeeds(SplittableRandom seeds) {
+		this.seeds = seeds;
+	}
+	
+	/**
+	 * @return - the seed that newBoard(diff, seed) regenerates the board's puzzle
+	 * from (with the same box size, difficulty and fill mode); empty if the puzzle 
+	 * came from the puzzle source, or was loaded
+	 */
+	OptionalLong getSeed() {
+		return seed;
+	}
+	
+	/**
+	 * sets all of the boards non-zero digits 
+	 * to permanent (and all blanks to non-permanent)
+	 * - thus they cannot be modified with putGuess()  
+	 */
+	private void permifyBoard() {
+		for(int r = 0; r < size; r++) {
+			for (int c = 0; c < size; c++) {
+				setPermanent(r, c, board[r][c] != 0);
 			}
 		}
-		
-		// check cells in the same row
-		for(int c = 0; c < 9; c++) {
-			if(c == col)
-				continue;
-			
-			if(getDigitAt(row, c) == 0) {
-				board[row][c] = digit;
-				if(isCellValid(row, c)) {
-					isRequiredInCol = false;
+	}
+	
+	/** 
+	 * creates a new game board, taking a ready-made puzzle from
+	 * puzzleSource if one is available, or generating one otherwise
+	 * (see Generator- puzzleSource only holds 9x9 puzzles, so other sizes
+	 * are always generated).
+	 * <p>
+	 * a puzzle taken from puzzleSource is reported as a GenerationEvent
+	 * and added to SudokuMetrics (Generator reports the ones it generates).
+	 * it keeps the seed it was generated from (see getSeed), unless the
+	 * source has none (a puzzle bank doesn't store seeds).
+	 * @param diff - the requested difficulty for the game
+	 */
+	public void newBoard(Difficulty diff) {
+		if(puzzleSource != null && shape == BoardShape.STANDARD) {
+			long start = System.nanoTime();
+			GenerationEvent event = new GenerationEvent();
+			event.begin();
+			int[] cells = new int[shape.cells];
+			long[] sourceSeed = new long[1];
+			boolean seeded = puzzleSource.takeSeededPuzzle(diff, cells, sourceSeed);
+			if(seeded || puzzleSource.takePuzzle(diff, cells)) {
+				loadPuzzle(cells);
+				if(seeded) {
+					seed = OptionalLong.of(sourceSeed[0]);
+					event.seed = sourceSeed[0];
 				}
-				board[row][c] = 0;
+				event.difficulty = diff.name();
+				event.boxSize = shape.boxSize;
+				event.fromSource = true;
+				event.requestedBlanks = diff.getNumBlanks(shape.cells);
+				event.achievedBlanks = countBlanks();
+				event.commit();
+				SudokuMetrics.INSTANCE.recordGeneration(event, System.nanoTime() - start);
+				return;
 			}
-			
 		}
-		
-		// check box
-		Box enclosingBox = new Box(row, col);
-		for(int r : enclosingBox.getRows()) {
-			for(int c : enclosingBox.getCols()) {
-				if(r == row && col == c)
-					continue;
-				
-				if(getDigitAt(r, c) == 0) {
-					board[r][c] = digit;
-					if(isCellValid(r, c)) {
-						isRequiredInBox = false;
-					}
-					board[r][c] = 0;
+		newBoard(diff, seeds.nextLong());
+	}
+	
+	/**
+	 * generates a new game board from a seed (the same seed, box size, difficulty
+	 * and fill mode always generate the same puzzle)
+	 * @param diff - the requested difficulty for the game
+	 * @param seed - determines the puzzle (see getSeed)
+	 */
+	void newBoard(Difficulty diff, long seed) {
+		loadGrid(Generator.generate(shape, diff, seed, gridFillMode, progressListener));
+		this.seed = OptionalLong.of(seed);
+	}
+	
+	/** @return - the number of blank cells on the board */
+	private int countBlanks() {
+		int blanks = 0;
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				if(board[r][c] == 0) {
+					blanks++;
 				}
 			}
 		}
-		
-		
-		board[row][col] = digit;
-		return isRequiredInRow || isRequiredInCol || isRequiredInBox;
+		return blanks;
 	}
 	
 	/**
-	 * uses backtracking to fill board with random (but valid) numbers.
-	 * <p> 
-	 * starts at the top left, and for each cell, it generates
-	 * an array of digits that have not yet been used in that row.
-	 * the array is shuffled, then iterated through, checking if
-	 * any number can legally be placed in that position. If the
-	 * number can be placed there, it attempts to move on. If not,
-	 * it backtracks.
-	 * 
-	 * @return - success?
+	 * replaces the board with a given puzzle
+	 * @param cells - the board's digits in row-major order (0 = blank);
+	 * every non-zero digit becomes permanent
 	 */
-	private boolean randomizeBoard(int currentRow, int currentCol) {
-		if(currentRow == 9) //the entire board is randomized
-			return true;
-
-		ArrayList<Integer> possibleDigits = new ArrayList<Integer>(10);
-		for(int i = 1; i < 10; i++) {
-			possibleDigits.add(i);
-		}
-		
-		for(int c = 0; c < currentCol; c++) {
-			possibleDigits.remove(possibleDigits.indexOf(board[currentRow][c])); 
-			// this works for removing small integers because of object interning
+	void loadPuzzle(int[] cells) {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				board[r][c] = cells[r * size + c];
+			}
 		}
-		
-		Collections.shuffle(possibleDigits);
-		
-		int nextCellsRow = (currentCol == 8) ? currentRow + 1 : currentRow;
-		int nextCellsCol = (currentCol == 8) ? 0 : currentCol + 1;
-
-		for(int digit : possibleDigits) {
-			board[currentRow][currentCol] = digit;
-			if(isCellValid(currentRow, currentCol)) {
-				if(randomizeBoard(nextCellsRow, nextCellsCol)) { // attempt to continue
-					return true;
-				}
-				// otherwise try next digit
-			} 
+		permifyBoard();
+		seed = OptionalLong.empty();
+		loadEngine();
+		loadConflicts();
+	}
+	
+	/**
+	 * @return - the board's digits in row-major order (0 = blank)
+	 */
+	int[] getCells() {
+		int[] cells = new int[shape.cells];
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				cells[r * size + c] = getDigitAt(r, c);
+			}
 		}
-		board[currentRow][currentCol] = 0; // prevent false shared-digits when backtracking
-		return false;
+		return cells;
 	}
 	
-	private boolean randomizeBoard() {
-		board = new int[9][9]; // clear board
-		return randomizeBoard(0, 0);
+	/**
+	 * @return - a compact copy of the board's digits and permanent cells
+	 * (9x9 boards only)
+	 */
+	PackedBoard toPacked() {
+		boolean[] givens = new boolean[81];
+		for(int i = 0; i < 81; i++) {
+			givens[i] = isCellPermanent(i / 9, i % 9);
+		}
+		return PackedBoard.of(getCells(), givens);
 	}
 	
-	private Random rand = new Random(); // used by randInt to generate random numbers
 	/**
-	 * generates a pseudorandom integer between 0 (inclusive) and bound (exclusive) 
-	 * @param bound - non-inclusive top bound of the random number
-	 * @return - the pseudorandom number
+	 * replaces the board with a packed copy (see toPacked)
+	 * @param packed - the board to restore
 	 */
-	private int randInt(int bound) {
-		return rand.nextInt(bound);
+	void loadPacked(PackedBoard packed) {
+		if(shape != BoardShape.STANDARD) {
+			setBoxSize(3);
+		}
+		for(int i = 0; i < 81; i++) {
+			board[i / 9][i % 9] = packed.getDigit(i);
+			setPermanent(i / 9, i % 9, packed.isGiven(i));
+		}
+		seed = OptionalLong.empty();
+		loadEngine();
+		loadConflicts();
 	}
 	
 	/**
-	 * attempts to remove a number of "removable digits"
-	 * (digits whose removal does not add another possible solution)
-	 * @param numDigitsToRemove - number of digits to try to remove
-	 * @return - the number of digits successfully removed
+	 * replaces the board with a game in progress (changing its size if needed)
+	 * @param boxSize - the width (in cells) of the game's boxes
+	 * @param cells - the game's digits in row-major order (0 = blank)
+	 * @param givens - which of the digits are permanent
 	 */
-	private int removeDigits(int numDigitsToRemove) {
-		removeAnother:
-		for(int i = 0; i < numDigitsToRemove; i++) {
-			// start at a random cell
-			int firstAttemptRow = randInt(9); 
-			int firstAttemptCol = randInt(9);
-			
-			int row = firstAttemptRow;
-			int col = firstAttemptCol;
-			
-			// iterate through all cells until a digit can be removed
-			do {
-				if(isCellRemovable(row, col)) {
-					board[row][col] = 0;
-					continue removeAnother;
-				}
-				row = (col == 8) ? row + 1 : row;
-				col = (col == 8) ? 0 : col + 1;
-
-				if(row == 9) { // loop back to (0,0) when (8,8) reached
-					row = 0;
-					col = 0;
-				}
-			} while(!(row == firstAttemptRow && col == firstAttemptCol));
-			return i; // no more cells can be removed
+	void loadGame(int boxSize, int[] cells, boolean[] givens) {
+		if(boxSize != shape.boxSize) {
+			setBoxSize(boxSize);
+		}
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				board[r][c] = cells[r * size + c];
+				setPermanent(r, c, givens[r * size + c]);
+			}
 		}
-		return numDigitsToRemove; // all digits successfully removed
+		seed = OptionalLong.empty();
+		loadEngine();
+		loadConflicts();
 	}
 	
+	/**
+	 * @return - the board as it stands (its digits, with the permanent ones as givens)
+	 */
+	Grid getGrid() {
+		boolean[] givens = new boolean[shape.cells];
+		for(int cell = 0; cell < shape.cells; cell++) {
+			givens[cell] = isCellPermanent(cell / size, cell % size);
+		}
+		return Grid.of(shape, getCells(), givens);
+	}
 	
 	/**
-	 * sets all of the boards non-zero digits 
-	 * to permanent (adds 10) - thus they cannot
-	 * be modified with putGuess()  
+	 * replaces the board with a grid (changing its size if needed)
+	 * @param grid - the digits to load; its givens become permanent
 	 */
-	private void permifyBoard() {
-		for(int r = 0; r < 9; r++) {
-			for (int c = 0; c < 9; c++) {
-				if(board[r][c] != 0) {
-					board[r][c] = permifyDigit(board[r][c]);
-				}
+	void loadGrid(Grid grid) {
+		if(grid.getShape() != shape) {
+			setBoxSize(grid.getBoxSize());
+		}
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				board[r][c] = grid.getDigit(r, c);
+				setPermanent(r, c, grid.isGiven(r, c));
 			}
 		}
+		seed = OptionalLong.empty();
+		loadEngine();
+		loadConflicts();
 	}
 	
-	/** 
-	 * creates a new game board 
-	 * @param diff - the requested difficulty for the game
+	/** ready-made puzzles for newBoard (null = always generate) */
+	private PuzzleSource puzzleSource;
+	
+	/**
+	 * @param source - where newBoard should take puzzles from before 
+	 * generating its own (null = always generate)
 	 */
-	public void newBoard(Difficulty diff) {
-		randomizeBoard();
-		removeDigits(diff.getNumBlanks());
-		permifyBoard();
+	void setPuzzleSource(PuzzleSource source) {
+		puzzleSource = source;
 	}
 	
 	/**
 	 * changes any non-permanent (user-entered) digits to zero. 
 	 */
 	private void clearAllNonPermanentCells() {
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
 				if(!isCellPermanent(r, c)) {
 					board[r][c] = 0;
 				}
@@ -399,22 +641,49 @@ public class SudokuBoard implements GameBoard{
 	
 	/** 
 	 * attempts to place guess at (row, col)
-	 * @param guess - the player's numerical guess for (row, col) 
+	 * @param guess - the player's numerical guess for (row, col) (0 to size)
 	 * @param row - the cell's row (in the board)
 	 * @param col - the cell's column (in the board)
 	 * @return - was the guess placed successfully?
 	 */ 
 	public boolean putGuess(int guess, int row, int col) {
-		if(isPermanent(board[row][col])) {
+		if(isCellPermanent(row, col) || guess < 0 || guess > size) {
 			return false;
 		}
+		conflicts.remove(board[row][col], row, col);
 		board[row][col] = guess;
+		conflicts.place(guess, row, col);
+		candidateGrid.set(guess, row, col);
 		return true;
 	}
 
 	/** @return - the digit at the position (row, col) */
 	public int getDigitAt(int row, int col) {
-		return UnpermifyDigit(board[row][col]);
+		return board[row][col];
+	}
+	
+	/**
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - a mask of the digits that can still go in the cell (bit d - 1 = digit d;
+	 * 0 if the cell is filled). kept up to date as digits are entered- does not scan the board
+	 */
+	public long getCandidates(int row, int col) {
+		return candidateGrid.getCandidates(row * size + col);
+	}
+	
+	/**
+	 * takes candidates that logic has ruled out (e.g. by a hint) out of getCandidates,
+	 * until a digit on the board is cleared or changed
+	 * @param eliminations - for each cell (row * size + col), a mask of the candidates to remove
+	 */
+	void excludeCandidates(long[] eliminations) {
+		candidateGrid.exclude(eliminations);
+	}
+	
+	/** @return - the board's candidates (for HintService) */
+	CandidateGrid getCandidateGrid() {
+		return candidateGrid;
 	}
 
 	/**
@@ -424,7 +693,20 @@ public class SudokuBoard implements GameBoard{
 	 * @return - is the cell permanent?
 	 */
 	public boolean isCellPermanent(int row, int col) {
-		return isPermanent(board[row][col]);
+		int cell = row * size + col;
+		return (permanentCells[cell >>> 6] & (1L << cell)) != 0;
+	}
+	
+	/**
+	 * checks if the cell holds a digit that shares its row, column
+	 * or box with the same digit. (answered from running counts-
+	 * does not scan the board)
+	 * @param row - the cell's row (in the board)
+	 * @param col - the cell's column (in the board)
+	 * @return - does the cell conflict with another?
+	 */
+	public boolean isCellConflicting(int row, int col) {
+		return !isCellValid(row, col);
 	}
 	
 	/** 
@@ -433,14 +715,25 @@ public class SudokuBoard implements GameBoard{
 	 * (true = valid, false = invalid)
 	 */
 	public boolean[][] check() {
-		boolean[][] validityGrid = new boolean[9][9];
+		long start = System.nanoTime();
+		CheckEvent event = new CheckEvent();
+		event.begin();
+		long validityChecksBefore = validityChecks;
+		boolean[][] validityGrid = new boolean[size][size];
 		
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
 				validityGrid[r][c] = isCellValid(r, c);
+				if(!validityGrid[r][c]) {
+					event.conflicts++;
+				}
 			}
 		}
 
+		event.boxSize = shape.boxSize;
+		event.validityChecks = validityChecks - validityChecksBefore;
+		event.commit();
+		SudokuMetrics.INSTANCE.recordCheck(event, System.nanoTime() - start);
 		return validityGrid;
 	}
 	
@@ -448,19 +741,22 @@ public class SudokuBoard implements GameBoard{
 	 * solves the board, overwriting any incorrect digits.
 	 * <p>
 	 * iterates through the board, stopping at blank (0) digits.
-	 * digits 1-9 are checked for validity (the number is allowed to
-	 * go in that position), then removability (the number must go in that position)
+	 * digits 1-size are checked for validity (the number is allowed to
+	 * go in that position, according to engine), then removability (the number must go in that position)
 	 * (validity is a prerequisite to the removability check)
 	 * 
 	 * if both are fufilled, the correct digit is placed in board.
 	 */
 	private void solve(int startRow, int startCol) {
+		if(++solverNodes % DancingLinksSolver.PROGRESS_INTERVAL == 0) {
+			reportProgress("solve", solverNodes);
+		}
 		//adjust out-of-bounds start positions
-		if(startCol > 8) {
+		if(startCol > size - 1) {
 			startRow++;
 			startCol = 0;
 		}
-		if(startRow > 8) {
+		if(startRow > size - 1) {
 			solve(0, 0);
 			return;
 		}
@@ -471,8 +767,8 @@ public class SudokuBoard implements GameBoard{
 		// find the first empty cell
 		boolean emptyCellFound = false;
 		findEmptyCell:
-		for(int r = startRow; r < 9; r++) {
-			for(int c = startCol; c < 9; c++) {
+		for(int r = startRow; r < size; r++) {
+			for(int c = startCol; c < size; c++) {
 				if(board[r][c] == 0) {
 					emptyCellFound = true;
 					emptyCellRow = r;
@@ -493,28 +789,134 @@ public class SudokuBoard implements GameBoard{
 		}
 		
 		// attempt to find the correct digit for the empty cell
-		for(int possDigit = 1; possDigit <= 9; possDigit++) {
+		for(int possDigit = 1; possDigit <= size; possDigit++) {
+			if(!engine.canPlace(possDigit, emptyCellRow, emptyCellCol)) {
+				continue;
+			}
 			board[emptyCellRow][emptyCellCol] = possDigit;
-			if(isCellValid(emptyCellRow, emptyCellCol) &&
-			   isCellRemovable(emptyCellRow, emptyCellCol)) {
+			solveCells[emptyCellRow * size + emptyCellCol] = possDigit;
+			engine.place(possDigit, emptyCellRow, emptyCellCol);
+			if(isCellRemovable(emptyCellRow, emptyCellCol)) {
 				// the cell is now correctly filled
 				solve(0, 0); // solve the rest of the board
 				return;
 			}
+			engine.remove(possDigit, emptyCellRow, emptyCellCol);
+			solverBacktracks++;
 		}
 		
 		// couldn't find a removable digit
 		board[emptyCellRow][emptyCellCol] = 0; // reset the empty cell
+		solveCells[emptyCellRow * size + emptyCellCol] = 0;
 		solve(emptyCellRow, emptyCellCol + 1); // look for the next empty cell
 	}
 	
 	/**
-	 * sets up solve by clearing all user-entered (non-permanent) digits
-	 * and calling solve(0, 0) (begins solving at row = 0 and col = 0)
+	 * solves the board with dancing links, leaving the board's
+	 * permanent digits in place. if the permanent digits have no
+	 * solution, the board is left with only those digits.
+	 * puzzles solved before are taken from SolutionCache.INSTANCE.
+	 * @return - was the solution found in the cache?
+	 */
+	private boolean solveWithDancingLinks() {
+		Grid puzzle = getGrid(); // only the givens are left on the board
+		Grid cached = SolutionCache.INSTANCE.get(puzzle);
+		if(cached != null) {
+			copySolution(cached.getCells());
+			return true;
+		}
+		
+		int[] cells = getCells();
+		DancingLinksSolver solver = getDancingLinks();
+		if(progressListener != null) {
+			solver.setProgressListener(steps -> reportProgress("solve", steps));
+		}
+		boolean solved;
+		try {
+			solved = solver.solve(cells);
+		} finally {
+			solver.setProgressListener(null);
+		}
+		solverNodes += solver.getSteps();
+		solverBacktracks += solver.getBacktracks();
+		if(solved) {
+			SolutionCache.INSTANCE.put(puzzle, puzzle.withDigits(cells));
+			copySolution(cells);
+		}
+		return false;
+	}
+	
+	/**
+	 * @param cells - a solution of the board, row-major; copied into every cell that isn't permanent
+	 */
+	private void copySolution(int[] cells) {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				if(!isCellPermanent(r, c)) {
+					board[r][c] = cells[r * size + c];
+				}
+			}
+		}
+	}
+	
+	/**
+	 * sets up solve by clearing all user-entered (non-permanent) digits,
+	 * then runs the selected solver backend. (FORCED_DIGITS loads the
+	 * remaining digits into engine and calls solve(0, 0), beginning
+	 * at row = 0 and col = 0)
+	 * <p>
+	 * each call is reported as a SolveEvent and added to SudokuMetrics.
 	 */
 	public void solve() {
+		long start = System.nanoTime();
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		solverNodes = 0;
+		solverBacktracks = 0;
+		removabilityChecks = 0;
+		
 		clearAllNonPermanentCells();
-		solve(0, 0);
+		event.blanks = countBlanks();
+		if(solverBackend == SolverBackend.DANCING_LINKS) {
+			event.cacheHit = solveWithDancingLinks();
+		} else {
+			if(solveCells == null || solveCells.length != shape.cells) {
+				solveCells = new int[shape.cells];
+			}
+			for(int r = 0; r < size; r++) {
+				for(int c = 0; c < size; c++) {
+					solveCells[r * size + c] = board[r][c];
+				}
+			}
+			loadEngine();
+			solve(0, 0);
+		}
+		loadConflicts();
+		
+		event.backend = solverBackend.name();
+		event.boxSize = shape.boxSize;
+		event.solved = countBlanks() == 0;
+		event.nodesVisited = solverNodes;
+		event.backtracks = solverBacktracks;
+		event.removabilityChecks = removabilityChecks;
+		event.commit();
+		SudokuMetrics.INSTANCE.recordSolve(event, System.nanoTime() - start);
+	}
+	
+	/**
+	 * lists the solutions of the board's current digits with a solver of its own
+	 * (so the stream can be read on any thread, and while the board is in use)
+	 */
+	public Stream<int[]> solutions() {
+		return new DancingLinksSolver(shape).solutions(getCells());
+	}
+	
+	/**
+	 * selects the algorithm used by solve()
+	 * @param backend - the solver to use
+	 */
+	public void setSolverBackend(SolverBackend backend) {
+		solverBackend = backend;
 	}
 	
 }
@@ -0,0 +1,248 @@
+package Sudoku;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * process-wide counters and latency histograms for board generation,
+ * solving and checking, shared by every SudokuBoard (including the
+ * puzzle supply's background boards).
+ * <p>
+ * boards count their work in plain fields and add it here once per
+ * operation, so the hot loops never touch a shared counter.
+ */
+public class SudokuMetrics implements SudokuMetricsMBean {
+	/** the instance every board records into */
+	static final SudokuMetrics INSTANCE = new SudokuMetrics();
+
+	static final String OBJECT_NAME = "Sudoku:type=Metrics";
+
+	private final LongAdder boardsGenerated = new LongAdder();
+	private final LongAdder boardsFromSource = new LongAdder();
+	private final LongAdder generationAttempts = new LongAdder();
+	private final LongAdder removabilityChecks = new LongAdder();
+	private final LongAdder uniquenessChecks = new LongAdder();
+	private final LongAdder uniquenessGiveUps = new LongAdder();
+	private final LongAdder solves = new LongAdder();
+	private final LongAdder solverNodesVisited = new LongAdder();
+	private final LongAdder solverBacktracks = new LongAdder();
+	private final LongAdder checks = new LongAdder();
+	private final LongAdder validityChecks = new LongAdder();
+
+	private final LatencyHistogram generationLatencies = new LatencyHistogram();
+	private final LatencyHistogram solveLatencies = new LatencyHistogram();
+	private final LatencyHistogram checkLatencies = new LatencyHistogram();
+
+	/** the process's background puzzle supply (null = none) */
+	private volatile PuzzleSupply puzzleSupply;
+
+	private SudokuMetrics() {
+	}
+
+	/**
+	 * @param supply - the supply whose queues getSupplyQueueDepths and
+	 * getSupplyRefillRates report (null = none)
+	 */
+	void setPuzzleSupply(PuzzleSupply supply) {
+		puzzleSupply = supply;
+	}
+
+	/**
+	 * registers INSTANCE with the platform MBean server (does nothing if it already is)
+	 * @throws JMException - if the MBean cannot be registered
+	 */
+	static synchronized void register() throws JMException {
+		ObjectName name = new ObjectName(OBJECT_NAME);
+		if(!ManagementFactory.getPlatformMBeanServer().isRegistered(name)) {
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, name);
+		}
+	}
+
+	/** adds a generated (or ready-made) board */
+	void recordGeneration(GenerationEvent event, long nanos) {
+		boardsGenerated.increment();
+		if(event.fromSource) {
+			boardsFromSource.increment();
+		}
+		generationAttempts.add(event.attempts);
+		removabilityChecks.add(event.removabilityChecks);
+		uniquenessChecks.add(event.uniquenessChecks);
+		uniquenessGiveUps.add(event.uniquenessGiveUps);
+		generationLatencies.record(nanos);
+	}
+
+	/** adds a solve */
+	void recordSolve(SolveEvent event, long nanos) {
+		solves.increment();
+		solverNodesVisited.add(event.nodesVisited);
+		solverBacktracks.add(event.backtracks);
+		removabilityChecks.add(event.removabilityChecks);
+		solveLatencies.record(nanos);
+	}
+
+	/** adds a check */
+	void recordCheck(CheckEvent event, long nanos) {
+		checks.increment();
+		validityChecks.add(event.validityChecks);
+		checkLatencies.record(nanos);
+	}
+
+	@Override
+	public long getBoardsGenerated() {
+		return boardsGenerated.sum();
+	}
+
+	@Override
+	public long getBoardsFromSource() {
+		return boardsFromSource.sum();
+	}
+
+	@Override
+	public long getGenerationAttempts() {
+		return generationAttempts.sum();
+	}
+
+	@Override
+	public long getRemovabilityChecks() {
+		return removabilityChecks.sum();
+	}
+
+	@Override
+	public long getUniquenessChecks() {
+		return uniquenessChecks.sum();
+	}
+
+	@Override
+	public long getUniquenessGiveUps() {
+		return uniquenessGiveUps.sum();
+	}
+
+	@Override
+	public long getSolves() {
+		return solves.sum();
+	}
+
+	@Override
+	public long getSolverNodesVisited() {
+		return solverNodesVisited.sum();
+	}
+
+	@Override
+	public long getSolverBacktracks() {
+		return solverBacktracks.sum();
+	}
+
+	@Override
+	public long getChecks() {
+		return checks.sum();
+	}
+
+	@Override
+	public long getValidityChecks() {
+		return validityChecks.sum();
+	}
+
+	@Override
+	public long getSolutionCacheHits() {
+		return SolutionCache.INSTANCE.getHits();
+	}
+
+	@Override
+	public long getSolutionCacheMisses() {
+		return SolutionCache.INSTANCE.getMisses();
+	}
+
+	@Override
+	public long getSolutionCacheEvictions() {
+		return SolutionCache.INSTANCE.getEvictions();
+	}
+
+	@Override
+	public double getSolutionCacheHitRate() {
+		return SolutionCache.INSTANCE.getHitRate();
+	}
+
+	@Override
+	public int getSolutionCacheEntries() {
+		return SolutionCache.INSTANCE.getSize();
+	}
+
+	@Override
+	public long getSolutionCacheBytes() {
+		return SolutionCache.INSTANCE.getMemoryUsed();
+	}
+
+	@Override
+	public int[] getSupplyQueueDepths() {
+		PuzzleSupply supply = puzzleSupply;
+		if(supply == null) {
+			return new int[0];
+		}
+		Difficulty[] difficulties = Difficulty.values();
+		int[] depths = new int[difficulties.length];
+		for(int d = 0; d < depths.length; d++) {
+			depths[d] = supply.getQueueDepth(difficulties[d]);
+		}
+		return depths;
+	}
+
+	@Override
+	public double[] getSupplyRefillRates() {
+		PuzzleSupply supply = puzzleSupply;
+		if(supply == null) {
+			return new double[0];
+		}
+		Difficulty[] difficulties = Difficulty.values();
+		double[] rates = new double[difficulties.length];
+		for(int d = 0; d < rates.length; d++) {
+			rates[d] = supply.getRefillRate(difficulties[d]);
+		}
+		return rates;
+	}
+
+	@Override
+	public double getGenerationP50Micros() {
+		return generationLatencies.getPercentile(50) / 1e3;
+	}
+
+	@Override
+	public double getGenerationP99Micros() {
+		return generationLatencies.getPercentile(99) / 1e3;
+	}
+
+	@Override
+	public double getSolveP50Micros() {
+		return solveLatencies.getPercentile(50) / 1e3;
+	}
+
+	@Override
+	public double getSolveP99Micros() {
+		return solveLatencies.getPercentile(99) / 1e3;
+	}
+
+	@Override
+	public double getCheckP50Micros() {
+		return checkLatencies.getPercentile(50) / 1e3;
+	}
+
+	@Override
+	public double getCheckP99Micros() {
+		return checkLatencies.getPercentile(99) / 1e3;
+	}
+
+	@Override
+	public void reset() {
+		for(LongAdder counter : new LongAdder[] {boardsGenerated, boardsFromSource, generationAttempts,
+				removabilityChecks, uniquenessChecks, uniquenessGiveUps, solves, solverNodesVisited,
+				solverBacktracks, checks, validityChecks}) {
+			counter.reset();
+		}
+		generationLatencies.reset();
+		solveLatencies.reset();
+		checkLatencies.reset();
+		SolutionCache.INSTANCE.resetCounters();
+	}
+}
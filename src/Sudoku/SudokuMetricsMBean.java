@@ -0,0 +1,53 @@
+package Sudoku;
+
+/**
+ * the JMX view of SudokuMetrics (registered as "Sudoku:type=Metrics"),
+ * readable from jconsole, VisualVM or any other JMX client.
+ * counters are totals since the start of the process (or the last reset);
+ * latencies are in microseconds.
+ */
+public interface SudokuMetricsMBean {
+	long getBoardsGenerated();
+	long getBoardsFromSource();
+	long getGenerationAttempts();
+	/** isCellRemovable calls, by generation and the forced digits solver */
+	long getRemovabilityChecks();
+	long getUniquenessChecks();
+	long getUniquenessGiveUps();
+
+	long getSolves();
+	long getSolverNodesVisited();
+	long getSolverBacktracks();
+
+	long getChecks();
+	long getValidityChecks();
+
+	/** see SolutionCache */
+	long getSolutionCacheHits();
+	long getSolutionCacheMisses();
+	long getSolutionCacheEvictions();
+	double getSolutionCacheHitRate();
+	int getSolutionCacheEntries();
+	long getSolutionCacheBytes();
+
+	/**
+	 * the puzzles ready in the background supply's queue of each Difficulty
+	 * (in declaration order, TRIVIAL first; empty if there is no supply)
+	 */
+	int[] getSupplyQueueDepths();
+	/**
+	 * the rate (puzzles per second of generation time) at which each Difficulty's
+	 * queue is refilled (in declaration order; empty if there is no supply)
+	 */
+	double[] getSupplyRefillRates();
+
+	double getGenerationP50Micros();
+	double getGenerationP99Micros();
+	double getSolveP50Micros();
+	double getSolveP99Micros();
+	double getCheckP50Micros();
+	double getCheckP99Micros();
+
+	/** zeroes every counter and histogram (the solution cache keeps its entries) */
+	void reset();
+}
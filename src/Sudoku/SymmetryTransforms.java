@@ -0,0 +1,145 @@
+package Sudoku;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * produces solved grids in constant time by applying random
+ * validity-preserving transforms to a handful of seed grids.
+ * <p>
+ * every transform maps a valid solved grid to another valid solved grid:
+ * relabelling the digits, reordering the rows within a band (a horizontal
+ * stack of boxes), reordering the bands, the same for columns and stacks,
+ * and transposing the grid. together they turn each 9x9 seed into any of
+ * roughly 1.2 trillion grids, without any search.
+ * <p>
+ * 9x9 grids come from a handful of seed grids; other sizes start from the
+ * "shifted rows" pattern grid (see patternGrid).
+ * <p>
+ * the grids are not uniformly distributed over all solved grids
+ * (only the seeds' symmetry classes are reachable)- use backtracking
+ * when that matters.
+ */
+class SymmetryTransforms {
+	/** solved grids (row-major) that the transforms are applied to */
+	private static final String[] SEED_GRIDS = {
+		"123456789456789123789123456231564897564897231897231564312645978645978312978312645",
+		"812753649943682175675491283154237896369845721287169534521974368438526917796318452",
+		"417369825632158947958724316825437169791586432346912758289643571573291684164875293",
+		"987654321246173985351928746128537694634892157795461832519286473472319568863745219"
+	};
+
+	private static final int[][] SEEDS = new int[SEED_GRIDS.length][81];
+
+	static {
+		for(int i = 0; i < SEED_GRIDS.length; i++) {
+			PuzzleFormat.parse(SEED_GRIDS[i], SEEDS[i]);
+		}
+	}
+
+	/**
+	 * shuffles values[offset] to values[offset + length - 1]
+	 */
+	private static void shuffle(int[] values, int offset, int length, RandomGenerator rand) {
+		for(int i = length - 1; i > 0; i--) {
+			int j = rand.nextInt(i + 1);
+			int swap = values[offset + i];
+			values[offset + i] = values[offset + j];
+			values[offset + j] = swap;
+		}
+	}
+
+	/**
+	 * fills order with a random permutation of 0 to boxSize * boxSize - 1
+	 * that only moves lines within their group of boxSize, and groups
+	 * as a whole (a row order that keeps every box intact)
+	 */
+	static void randomLineOrder(int[] order, int boxSize, RandomGenerator rand) {
+		int[] groups = new int[boxSize];
+		for(int g = 0; g < boxSize; g++) {
+			groups[g] = g;
+		}
+		shuffle(groups, 0, boxSize, rand);
+		for(int g = 0; g < boxSize; g++) {
+			for(int i = 0; i < boxSize; i++) {
+				order[g * boxSize + i] = groups[g] * boxSize + i;
+			}
+			shuffle(order, g * boxSize, boxSize, rand);
+		}
+	}
+
+	/**
+	 * fills grid with a solved grid of any size: row r is the row
+	 * 1, 2, ..., n shifted left by (r % boxSize) * boxSize + r / boxSize
+	 * @param grid - receives the grid's digits in row-major order
+	 * @param boxSize - the width of the grid's boxes
+	 */
+	static void patternGrid(int[] grid, int boxSize) {
+		int size = boxSize * boxSize;
+		for(int r = 0; r < size; r++) {
+			int shift = (r % boxSize) * boxSize + r / boxSize;
+			for(int c = 0; c < size; c++) {
+				grid[r * size + c] = (shift + c) % size + 1;
+			}
+		}
+	}
+
+	/**
+	 * applies a transform to a grid
+	 * @param source - the grid's digits in row-major order (0 = blank)
+	 * @param dest - receives the transformed grid (must not be source)
+	 * @param rowOrder - row r of dest comes from row rowOrder[r] of source
+	 * @param colOrder - column c of dest comes from column colOrder[c] of source
+	 * @param transpose - should source be transposed before the rows and columns are reordered?
+	 * @param relabel - each digit d becomes relabel[d] (relabel[0] must be 0)
+	 */
+	static void apply(int[] source, int[] dest, int[] rowOrder, int[] colOrder,
+	                  boolean transpose, int[] relabel) {
+		int size = rowOrder.length;
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				int sourceRow = rowOrder[r];
+				int sourceCol = colOrder[c];
+				int sourceCell = transpose ? sourceCol * size + sourceRow : sourceRow * size + sourceCol;
+				dest[r * size + c] = relabel[source[sourceCell]];
+			}
+		}
+	}
+
+	/**
+	 * fills grid with a random solved grid
+	 * @param grid - receives the grid's digits in row-major order
+	 * @param boxSize - the width of the grid's boxes
+	 * @param rand - the source of randomness
+	 */
+	static void randomSolvedGrid(int[] grid, int boxSize, RandomGenerator rand) {
+		int size = boxSize * boxSize;
+		int[] rowOrder = new int[size];
+		int[] colOrder = new int[size];
+		int[] relabel = new int[size + 1];
+		for(int d = 0; d <= size; d++) {
+			relabel[d] = d;
+		}
+
+		randomLineOrder(rowOrder, boxSize, rand);
+		randomLineOrder(colOrder, boxSize, rand);
+		shuffle(relabel, 1, size, rand);
+
+		int[] seed;
+		if(boxSize == 3) {
+			seed = SEEDS[rand.nextInt(SEEDS.length)];
+		} else {
+			seed = new int[size * size];
+			patternGrid(seed, boxSize);
+		}
+		apply(seed, grid, rowOrder, colOrder, rand.nextBoolean(), relabel);
+	}
+
+	/**
+	 * fills grid with a random solved 9x9 grid
+	 * @param grid - receives 81 digits in row-major order
+	 * @param rand - the source of randomness
+	 */
+	static void randomSolvedGrid(int[] grid, RandomGenerator rand) {
+		randomSolvedGrid(grid, 3, rand);
+	}
+}
@@ -1,19 +1,36 @@
 package Sudoku;
 
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.util.function.Consumer;
 
 import javax.swing.*;
 
 public class UserInterface {
 	
 	private SudokuBoard board;
+	private SavedGame savedGame;
+	private Autosaver autosaver;
 
 	public void showGui() {
-		new SudokuFrame(board);
+		new SudokuFrame(board, savedGame, autosaver);
 	}
 	
 	public UserInterface(SudokuBoard board) {
+		this(board, null, null);
+	}
+	
+	/**
+	 * @param board - the board to play on
+	 * @param savedGame - the game to resume (null = start on a blank board)
+	 * @param autosaver - saves the game as it changes (null = no autosave)
+	 */
+	public UserInterface(SudokuBoard board, SavedGame savedGame, Autosaver autosaver) {
 		this.board = board;
+		this.savedGame = savedGame;
+		this.autosaver = autosaver;
 	}
 }
 
@@ -21,9 +38,12 @@ class SudokuFrame extends JFrame {
 	public BoardPanel gameBoardPanel;
 	public ButtonsPanel gameButtonsPanel;
 	
-	public SudokuFrame(SudokuBoard board) {
+	/** refreshes the time played (in the title) */
+	private Timer clockTimer;
+	
+	public SudokuFrame(SudokuBoard board, SavedGame savedGame, Autosaver autosaver) {
 		setTitle("Sudoku");
-		setMinimumSize(new Dimension(1000, 700));
+		setMinimumSize(new Dimension(1000, 800));
 		setResizable(false);
 
 		setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -41,11 +61,54 @@ class SudokuFrame extends JFrame {
 		gameButtonsPanel = new ButtonsPanel(board, this);
 		add(gameButtonsPanel, GuiUtil.createGBC(2, 0));
 
+		if(savedGame != null) {
+			gameBoardPanel.restore(savedGame);
+		}
+		if(autosaver != null) {
+			gameBoardPanel.setAutosaver(autosaver);
+			addWindowListener(new WindowAdapter() {
+				@Override
+				public void windowClosing(WindowEvent e) {
+					gameBoardPanel.saveNow(); // the last changes (and time played)
+					try {
+						autosaver.close();
+					} catch(IOException ex) {
+						System.err.println("could not close the autosave file: " + ex);
+					}
+				}
+			});
+		}
+
+		clockTimer = new Timer(1000, e -> updateTitle());
+		clockTimer.start();
+		updateTitle();
+
 		setVisible(true);
 	}
+	
+	private void updateTitle() {
+		if(gameBoardPanel.isGameStarted()) {
+			setTitle("Sudoku - " + formatTime(gameBoardPanel.getElapsedMillis()));
+		}
+	}
+	
+	/** @return - a time as m:ss (or h:mm:ss) */
+	static String formatTime(long millis) {
+		long seconds = millis / 1000;
+		if(seconds < 3600) {
+			return String.format("%d:%02d", seconds / 60, seconds % 60);
+		}
+		return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+	}
 }
 
-class BoardPanel extends JPanel {
+/**
+ * the board, painted as a single component: every cell is drawn straight
+ * from the board's state in paintComponent, so a change to a cell only
+ * repaints that cell's rectangle (which keeps redraws cheap on large boards
+ * and over remote desktops), and the mouse is mapped to cells arithmetically
+ */
+class BoardPanel extends JComponent {
 	public SudokuFrame parent;
 
 	private SudokuBoard board;
@@ -55,17 +118,49 @@ class BoardPanel extends JPanel {
 		NEUTRAL, CORRECT, INCORRECT
 	}
 
-	JLabel[][] labelArray = new JLabel[9][9];
-	boolean[][] cellSelections = new boolean[9][9];
-	Correctness[][] cellCorrectness = new Correctness[9][9];
-	JPanel[] boxArray = new JPanel[9];
+	/** the width (in pixels) of the whole grid, whatever the board's size */
+	private static final int BOARD_PIXELS = 540;
+
+	/** the gap (in pixels) between the component's edge and the grid, wide enough for the outer box line */
+	private static final int MARGIN = 2;
+	/** the width (in pixels) of the lines between boxes */
+	private static final int BOX_LINE = 3;
+
+	/** the number of rows (and columns) of cells currently laid out */
+	private int size;
+	/** the width (and height) of a cell, in pixels (including its top and left line) */
+	private int cellPixels;
 	
+	boolean[][] cellSelections;
+	Correctness[][] cellCorrectness;
+
+	// fonts and glyph metrics, cached whenever the board's size changes
+	private Font boldFont;
+	private Font plainFont;
+	/** the text of each digit (index 1 to size) */
+	private String[] digitTexts;
+	private int[] boldWidths;
+	private int[] plainWidths;
+	private int boldBaseline;
+	private int plainBaseline;
+	/** pencil marks: each digit's width and the baseline of a mark (within its slot of the cell) */
+	private Font markFont;
+	private int[] markWidths;
+	private int markBaseline;
 	
-	private int getBoxNumber(int row, int col) {
-		row /= 3;
-		col /= 3;
-		
-		return row * 3 + col;
+	/** the largest board (in rows) whose pencil marks are big enough to draw */
+	private static final int MAX_PENCIL_MARK_SIZE = 16;
+	/** are the candidates of blank cells drawn? */
+	private boolean showPencilMarks = false;
+	private final Color pencilMarkColor = Color.darkGray;
+	
+	/** gives hints for the board (recreated when the board changes size) */
+	private HintService hints;
+	
+	
+	/** @return - the width (in cells) of the board's boxes */
+	public int getBoxSize() {
+		return board.getBoxSize();
 	}
 	
 	private int lastSelectedRow = 0;
@@ -74,33 +169,43 @@ class BoardPanel extends JPanel {
 	public void moveSelection(String direction, boolean keepOtherCellsSelected) {
 		switch(direction) {
 			case "UP" :
-				lastSelectedRow = (lastSelectedRow - 1 + 9) % 9;
+				lastSelectedRow = (lastSelectedRow - 1 + size) % size;
 				break;
 			case "DOWN" :
-				lastSelectedRow = (lastSelectedRow + 1 + 9) % 9;
+				lastSelectedRow = (lastSelectedRow + 1 + size) % size;
 				break;
 			case "LEFT" :
-				lastSelectedCol = (lastSelectedCol - 1 + 9) % 9;
+				lastSelectedCol = (lastSelectedCol - 1 + size) % size;
 				break;
 			case "RIGHT" :
-				lastSelectedCol = (lastSelectedCol + 1 + 9) % 9;
+				lastSelectedCol = (lastSelectedCol + 1 + size) % size;
 				break;
 		}
 		if(!keepOtherCellsSelected) {
 			clearSelections();
 		}
 		setSelected(lastSelectedRow, lastSelectedCol);
-		update();
 	}
 	
+	/**
+	 * selects the cell (r, c), repainting it if it wasn't already selected
+	 */
 	public void setSelected(int r, int c) {
 		lastSelectedRow = r;
 		lastSelectedCol = c;
-		cellSelections[r][c] = true;
+		if(!cellSelections[r][c]) {
+			cellSelections[r][c] = true;
+			update(r, c);
+			gameChanged();
+		}
 	}
 	
 	public void setUnselected(int r, int c) {
-		cellSelections[r][c] = false;
+		if(cellSelections[r][c]) {
+			cellSelections[r][c] = false;
+			update(r, c);
+			gameChanged();
+		}
 	}
 	
 	public void swapSelection(int r, int c) {
@@ -116,22 +221,99 @@ class BoardPanel extends JPanel {
 	}
 	
 	public void clearSelections() {
-		for(int r = 0; r < 9; r++) {
-			for(int c= 0; c < 9; c++) {
-				cellSelections[r][c] = false;
+		for(int r = 0; r < size; r++) {
+			for(int c= 0; c < size; c++) {
+				setUnselected(r, c);
 			}
 		}
 	}
 	
+	/** the player's edits since the board was last replaced (see undo and redo) */
+	private final MoveJournal journal = new MoveJournal();
+	
 	public void fillSelectedCells(int digit) {
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
+		if(digit > size || isBusy()) { // not a digit of this board, or a worker owns the board
+			return;
+		}
+		journal.begin(); // one undo step for every cell filled
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
 				if(cellSelections[r][c]) {
-					board.putGuess(digit, r, c);
+					int oldDigit = board.getDigitAt(r, c);
+					if(board.putGuess(digit, r, c)) {
+						journal.record(r * size + c, oldDigit, digit);
+					}
 					update(r, c);
+					if(liveCheck) {
+						updateCorrectnessAround(r, c);
+					}
 				}
 			}
 		}
+		if(showPencilMarks) { // the peers' candidates may have changed too
+			update();
+		}
+		gameChanged();
+	}
+	
+	/**
+	 * takes back the player's last fill (of every cell it changed)
+	 */
+	public void undo() {
+		if(!isBusy() && journal.undo(board) > 0) {
+			refreshAfterEdits();
+		}
+	}
+	
+	/**
+	 * puts back the last fill taken back by undo
+	 */
+	public void redo() {
+		if(!isBusy() && journal.redo(board) > 0) {
+			refreshAfterEdits();
+		}
+	}
+	
+	private void refreshAfterEdits() {
+		if(liveCheck) {
+			checkBoard(); // also updates
+		} else {
+			update();
+		}
+		gameChanged();
+	}
+	
+	/** shows or hides the candidates of the blank cells */
+	public void togglePencilMarks() {
+		showPencilMarks = !showPencilMarks;
+		update();
+		gameChanged();
+	}
+	
+	/**
+	 * shows the next step of logic (see HintService): its explanation goes in the
+	 * status line, and the cells it is about are selected. candidates that the
+	 * step eliminates are taken out of the pencil marks.
+	 */
+	public void showHint() {
+		if(!boardInitialized || isBusy()) {
+			return;
+		}
+		if(hints == null || hints.getShape().boxSize != board.getBoxSize()) {
+			hints = new HintService(BoardShape.of(board.getBoxSize()));
+		}
+		Hint hint = hints.nextHint(board);
+		if(hint.eliminations != null) {
+			board.excludeCandidates(hint.eliminations);
+			if(showPencilMarks) {
+				update();
+			}
+		}
+		clearSelections();
+		for(int cell : hint.cells) {
+			setSelected(cell / size, cell % size);
+		}
+		parent.gameButtonsPanel.setStatus(hint.getText());
 	}
 	
 	// color constants
@@ -154,110 +336,567 @@ class BoardPanel extends JPanel {
 	}
 	
 	public void reset() {
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
 				cellSelections[r][c] = false;
 				cellCorrectness[r][c] = Correctness.NEUTRAL;
 			}
 		}
+		gameChanged();
 	}
 	
+	/**
+	 * repaints the cell (r, c) (and the lines around it) from the board's current state
+	 */
 	public void update(int r, int c) {
-		int cellValue = board.getDigitAt(r, c);
-		JLabel cellLabel = labelArray[r][c];
-		
-		// font weight
-		if(board.isCellPermanent(r, c)) {
-			cellLabel.setFont(GuiUtil.boldFontWithSize(30));
-		} else {
-			cellLabel.setFont(GuiUtil.plainFontWithSize(30));
+		repaint(cellX(c) - BOX_LINE, cellY(r) - BOX_LINE, cellPixels + 2 * BOX_LINE, cellPixels + 2 * BOX_LINE);
+	}
+
+	/**
+	 * repaints every cell
+	 */
+	public void update() {
+		repaint();
+	}
+
+	/** @return - the x coordinate of the left edge of column c */
+	private int cellX(int c) {
+		return MARGIN + c * cellPixels;
+	}
+
+	/** @return - the y coordinate of the top edge of row r */
+	private int cellY(int r) {
+		return MARGIN + r * cellPixels;
+	}
+
+	/**
+	 * @param x - an x coordinate in the component
+	 * @return - the column of the cell at x (-1 if x is outside the grid)
+	 */
+	public int colAt(int x) {
+		return lineAt(x);
+	}
+
+	/**
+	 * @param y - a y coordinate in the component
+	 * @return - the row of the cell at y (-1 if y is outside the grid)
+	 */
+	public int rowAt(int y) {
+		return lineAt(y);
+	}
+
+	private int lineAt(int pixel) {
+		if(pixel < MARGIN) {
+			return -1;
 		}
+		int line = (pixel - MARGIN) / cellPixels;
+		return line < size ? line : -1;
+	}
 
-		// text
-		if(cellValue == 0) {
-			cellLabel.setText("");
-		} else {
-			cellLabel.setText(String.valueOf(cellValue));
+	/**
+	 * paints the cells and lines that intersect the clip rectangle
+	 */
+	@Override
+	protected void paintComponent(Graphics g) {
+		Graphics2D g2 = (Graphics2D) g;
+		g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+
+		Rectangle clip = g.getClipBounds();
+		if(clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+		g.setColor(GuiUtil.defaultColor);
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		// only the cells under the clip rectangle
+		int firstRow = Math.max(0, (clip.y - MARGIN) / cellPixels);
+		int lastRow = Math.min(size - 1, (clip.y + clip.height - MARGIN) / cellPixels);
+		int firstCol = Math.max(0, (clip.x - MARGIN) / cellPixels);
+		int lastCol = Math.min(size - 1, (clip.x + clip.width - MARGIN) / cellPixels);
+		for(int r = firstRow; r <= lastRow; r++) {
+			for(int c = firstCol; c <= lastCol; c++) {
+				paintCell(g2, r, c);
+			}
+		}
+
+		// grid lines (anything outside the clip is discarded by the graphics)
+		int boxSize = board.getBoxSize();
+		int gridPixels = size * cellPixels;
+		g.setColor(Color.black);
+		for(int l = 0; l <= size; l++) {
+			int offset = MARGIN + l * cellPixels;
+			if(l % boxSize == 0) {
+				g.fillRect(offset - BOX_LINE / 2, MARGIN - BOX_LINE / 2, BOX_LINE, gridPixels + BOX_LINE);
+				g.fillRect(MARGIN - BOX_LINE / 2, offset - BOX_LINE / 2, gridPixels + BOX_LINE, BOX_LINE);
+			} else {
+				g.fillRect(offset, MARGIN, 1, gridPixels);
+				g.fillRect(MARGIN, offset, gridPixels, 1);
+			}
 		}
-		
-		// color
-		cellLabel.setBackground(getCellColor(r, c));
 	}
 
-	public void update() {
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
-				update(r, c);
+	/**
+	 * paints the background and digit of the cell (r, c)
+	 */
+	private void paintCell(Graphics2D g, int r, int c) {
+		int x = cellX(c);
+		int y = cellY(r);
+		g.setColor(getCellColor(r, c));
+		g.fillRect(x, y, cellPixels, cellPixels);
+
+		int digit = board.getDigitAt(r, c);
+		if(digit == 0) {
+			if(showPencilMarks && size <= MAX_PENCIL_MARK_SIZE) {
+				paintPencilMarks(g, r, c);
+			}
+			return;
+		}
+		g.setColor(Color.black);
+		if(board.isCellPermanent(r, c)) {
+			g.setFont(boldFont);
+			g.drawString(digitTexts[digit], x + (cellPixels - boldWidths[digit]) / 2, y + boldBaseline);
+		} else {
+			g.setFont(plainFont);
+			g.drawString(digitTexts[digit], x + (cellPixels - plainWidths[digit]) / 2, y + plainBaseline);
+		}
+	}
+	
+	/**
+	 * paints the candidates of the blank cell (r, c), each digit in its own
+	 * slot of a boxSize x boxSize grid within the cell
+	 */
+	private void paintPencilMarks(Graphics2D g, int r, int c) {
+		long candidates = board.getCandidates(r, c);
+		if(candidates == 0) {
+			return;
+		}
+		int boxSize = board.getBoxSize();
+		int slotPixels = cellPixels / boxSize;
+		int x = cellX(c) + (cellPixels - slotPixels * boxSize) / 2;
+		int y = cellY(r) + (cellPixels - slotPixels * boxSize) / 2;
+		g.setColor(pencilMarkColor);
+		g.setFont(markFont);
+		for(int d = 1; d <= size; d++) {
+			if((candidates & BoardShape.bit(d)) != 0) {
+				int slotX = x + ((d - 1) % boxSize) * slotPixels;
+				int slotY = y + ((d - 1) / boxSize) * slotPixels;
+				g.drawString(digitTexts[d], slotX + (slotPixels - markWidths[d]) / 2, slotY + markBaseline);
 			}
 		}
 	}
 	
+	/** the solve or new game running in the background (null if none has been started) */
+	private BoardWorker task;
+	
+	/** @return - is a solve or new game running in the background? */
+	public boolean isBusy() {
+		return task != null && !task.isDone();
+	}
+	
+	/**
+	 * stops the solve or new game running in the background (if any),
+	 * leaving the board as it was
+	 */
+	public void cancelTask() {
+		if(task != null) {
+			task.cancel(true);
+		}
+	}
+	
+	/**
+	 * runs an operation on a copy of the board in the background (see BoardWorker),
+	 * cancelling any operation already running
+	 * @param description - what the operation is doing, for the progress text
+	 * @param operation - the operation to run on the copy
+	 * @param onDone - applies the finished copy to the board (on the EDT)
+	 */
+	private void runTask(String description, BoardWorker.Operation operation, 
+	                     Consumer<SudokuBoard> onDone) {
+		cancelTask();
+		ButtonsPanel buttons = parent.gameButtonsPanel;
+		BoardWorker worker = new BoardWorker(board, description, operation, buttons::setStatus, onDone);
+		worker.addPropertyChangeListener(e -> {
+			if(worker == task && worker.isDone()) {
+				buttons.setTaskRunning(false);
+			}
+		});
+		task = worker;
+		buttons.setStatus(description + "...");
+		buttons.setTaskRunning(true);
+		worker.execute();
+	}
+	
 	public void solveBoard() {
 		if(!boardInitialized) // can't solve a blank board
 			return;
 
-		board.solve();
-		update();
+		runTask("Solving", SudokuBoard::solve, solved -> {
+			board.copyFrom(solved);
+			journal.clear();
+			refreshAfterEdits();
+		});
+	}
+	
+	/**
+	 * starts a new game (generated in the background), changing the size
+	 * of the board (and the cells and digit buttons shown) if needed
+	 * @param diff - the requested difficulty for the game
+	 * @param boxSize - the width (in cells) of the new board's boxes
+	 */
+	public void setNewBoard(Difficulty diff, int boxSize) {
+		runTask("Generating", copy -> {
+			if(boxSize != copy.getBoxSize()) {
+				copy.setBoxSize(boxSize);
+			}
+			copy.newBoard(diff);
+		}, generated -> {
+			boolean resized = generated.getBoxSize() != board.getBoxSize();
+			board.copyFrom(generated);
+			journal.clear();
+			if(resized) {
+				resizeCells();
+			}
+			boardInitialized = true;
+			elapsedMillis = 0;
+			clockStart = -1; // restarted by the save
+			reset();
+			update();
+		});
+	}
+	
+	/**
+	 * lays the cells and digit buttons out again after the board has changed size
+	 */
+	private void resizeCells() {
+		createCells();
+		parent.gameButtonsPanel.createDigitButtons(board.getBoxSize());
+		parent.validate();
+		parent.repaint();
+	}
+	
+	/** saves the game as it changes (null = no autosave) */
+	private Autosaver autosaver;
+	/** is a save waiting to run once the current event has been handled? */
+	private boolean saveQueued = false;
+	/** the time played before the clock was last started */
+	private long elapsedMillis = 0;
+	/** System.nanoTime() when the clock was last started (-1 = stopped) */
+	private long clockStart = -1;
+	
+	/** @param autosaver - saves the game whenever it changes (null = no autosave) */
+	public void setAutosaver(Autosaver autosaver) {
+		this.autosaver = autosaver;
+		gameChanged();
+	}
+	
+	/** @return - has a game been started (or restored)? */
+	public boolean isGameStarted() {
+		return boardInitialized;
+	}
+	
+	/** @return - the time played on the current game, in milliseconds */
+	public long getElapsedMillis() {
+		if(clockStart < 0) {
+			return elapsedMillis;
+		}
+		return elapsedMillis + (System.nanoTime() - clockStart) / 1_000_000;
+	}
+	
+	/**
+	 * queues a save (see saveNow) for when the current event has been handled,
+	 * so that a burst of changes (e.g. clearing every selection) saves once
+	 */
+	private void gameChanged() {
+		if(!saveQueued) {
+			saveQueued = true;
+			SwingUtilities.invokeLater(this::saveNow);
+		}
+	}
+	
+	/**
+	 * runs the clock while the game is unfinished, and hands a snapshot of
+	 * the game to the autosaver (which writes it in the background)
+	 */
+	public void saveNow() {
+		saveQueued = false;
+		if(!boardInitialized) {
+			return;
+		}
+		boolean finished = isBoardFinished();
+		if(finished && clockStart >= 0) {
+			elapsedMillis = getElapsedMillis();
+			clockStart = -1;
+		} else if(!finished && clockStart < 0) {
+			clockStart = System.nanoTime();
+		}
+		if(autosaver != null) {
+			autosaver.submit(snapshot());
+		}
+	}
+	
+	/** @return - is every cell filled, without conflicts? */
+	private boolean isBoardFinished() {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				if(board.getDigitAt(r, c) == 0 || board.isCellConflicting(r, c)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+	
+	/** @return - the game as it stands: the board, selections, highlights and time played */
+	private SavedGame snapshot() {
+		int[] digits = new int[size * size];
+		int[] cellFlags = new int[size * size];
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				int cell = r * size + c;
+				digits[cell] = board.getDigitAt(r, c);
+				cellFlags[cell] = (board.isCellPermanent(r, c) ? SavedGame.GIVEN : 0) 
+				                | (cellSelections[r][c] ? SavedGame.SELECTED : 0)
+				                | (cellCorrectness[r][c] == Correctness.CORRECT ? SavedGame.CORRECT : 0)
+				                | (cellCorrectness[r][c] == Correctness.INCORRECT ? SavedGame.INCORRECT : 0);
+			}
+		}
+		int flags = (liveCheck ? SavedGame.LIVE_CHECK : 0) | (showPencilMarks ? SavedGame.PENCIL_MARKS : 0);
+		return new SavedGame(board.getBoxSize(), flags, getElapsedMillis(), digits, cellFlags);
 	}
 	
-	public void setNewBoard(Difficulty diff) {
+	/**
+	 * picks up a saved game where it was left off
+	 * @param game - the game to resume
+	 */
+	public void restore(SavedGame game) {
+		cancelTask();
+		boolean[] givens = new boolean[game.digits.length];
+		for(int cell = 0; cell < givens.length; cell++) {
+			givens[cell] = (game.cellFlags[cell] & SavedGame.GIVEN) != 0;
+		}
+		boolean resized = game.boxSize != board.getBoxSize();
+		board.loadGame(game.boxSize, game.digits, givens);
+		journal.clear();
+		if(resized) {
+			resizeCells();
+		}
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				int flags = game.cellFlags[r * size + c];
+				cellSelections[r][c] = (flags & SavedGame.SELECTED) != 0;
+				cellCorrectness[r][c] = (flags & SavedGame.CORRECT) != 0 ? Correctness.CORRECT
+				                      : (flags & SavedGame.INCORRECT) != 0 ? Correctness.INCORRECT
+				                      : Correctness.NEUTRAL;
+			}
+		}
+		liveCheck = (game.flags & SavedGame.LIVE_CHECK) != 0;
+		showPencilMarks = (game.flags & SavedGame.PENCIL_MARKS) != 0;
+		elapsedMillis = game.elapsedMillis;
+		clockStart = -1; // restarted by the save
 		boardInitialized = true;
-		board.newBoard(diff);
+		update();
+		gameChanged();
 	}
 	
 	public void checkBoard() {
 		boolean[][] checkedBoard = board.check();
 		
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
-				if(board.getDigitAt(r, c) == 0 || board.isCellPermanent(r, c)) { // ignore blank and given cells
-					cellCorrectness[r][c] = Correctness.NEUTRAL;
-				} else if(checkedBoard[r][c]) { // correct
-					cellCorrectness[r][c] = Correctness.CORRECT;
-				} else {
-					cellCorrectness[r][c] = Correctness.INCORRECT;
-				}
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				cellCorrectness[r][c] = getCorrectness(r, c, checkedBoard[r][c]);
 			}
 		}
 		
 		update();
+		gameChanged();
+	}
+	
+	/**
+	 * @param isValid - does the cell's digit avoid colliding with any other?
+	 * @return - the correctness highlight for the cell (row, col)
+	 */
+	private Correctness getCorrectness(int r, int c, boolean isValid) {
+		if(board.getDigitAt(r, c) == 0 || board.isCellPermanent(r, c)) { // ignore blank and given cells
+			return Correctness.NEUTRAL;
+		} else if(isValid) { // correct
+			return Correctness.CORRECT;
+		} else {
+			return Correctness.INCORRECT;
+		}
+	}
+	
+	/**
+	 * when set, correctness highlights are kept up to date as digits are entered
+	 */
+	private boolean liveCheck = false;
+	
+	public boolean isLiveCheck() {
+		return liveCheck;
+	}
+	
+	public void toggleLiveCheck() {
+		setLiveCheck(!liveCheck);
+	}
+	
+	/**
+	 * turns live checking on (highlighting the whole board once) or off
+	 * (removing all highlights)
+	 */
+	public void setLiveCheck(boolean enabled) {
+		liveCheck = enabled;
+		if(liveCheck) {
+			checkBoard();
+		} else {
+			clearCorrectness();
+			update();
+			gameChanged();
+		}
+	}
+	
+	/**
+	 * re-highlights the cell (r, c) and the cells sharing its row, column
+	 * or box (the only cells whose conflicts can change when (r, c) does),
+	 * repainting just the cells whose highlight changed
+	 */
+	private void updateCorrectnessAround(int r, int c) {
+		for(int i = 0; i < size; i++) {
+			updateCorrectness(r, i);
+			if(i != r) {
+				updateCorrectness(i, c);
+			}
+		}
+		int boxSize = board.getBoxSize();
+		int boxRow = (r / boxSize) * boxSize;
+		int boxCol = (c / boxSize) * boxSize;
+		for(int br = boxRow; br < boxRow + boxSize; br++) {
+			for(int bc = boxCol; bc < boxCol + boxSize; bc++) {
+				if(br != r && bc != c) { // not already covered by the row or column
+					updateCorrectness(br, bc);
+				}
+			}
+		}
+	}
+	
+	private void updateCorrectness(int r, int c) {
+		Correctness correctness = getCorrectness(r, c, !board.isCellConflicting(r, c));
+		if(correctness != cellCorrectness[r][c]) {
+			cellCorrectness[r][c] = correctness;
+			update(r, c);
+		}
+	}
+	
+	private void clearCorrectness() {
+		for(int r = 0; r < size; r++) {
+			for(int c = 0; c < size; c++) {
+				cellCorrectness[r][c] = Correctness.NEUTRAL;
+			}
+		}
 	}
 
-	public BoardPanel(SudokuBoard board, SudokuFrame parent) {
-		this.board = board;
-		this.parent = parent;
-
-		setLayout(new GridBagLayout());
+	/** @return - the font size of the digits (scaled to the cells) */
+	private int getFontSize() {
+		return BOARD_PIXELS / size / 2;
+	}
+	
+	/**
+	 * (re)sizes the cells, fonts and per-cell state for the board's current size,
+	 * keeping the grid the same width whatever the board's size
+	 */
+	private void createCells() {
+		size = board.getSize();
+		cellPixels = BOARD_PIXELS / size;
 		
-		for(int l = 0; l < 9; l++) { // instantiate and set up 9 boxes (bolded subsections of the board)
-			boxArray[l] = new JPanel(new GridBagLayout());
-			boxArray[l].setVisible(true);
-			boxArray[l].setBorder(GuiUtil.createOutsideBorder(Color.black));
-			add(boxArray[l], GuiUtil.createGBC(l % 3, l / 3));
-		}
+		cellSelections = new boolean[size][size];
+		cellCorrectness = new Correctness[size][size];
+		lastSelectedRow = 0;
+		lastSelectedCol = 0;
 
+		int fontSize = getFontSize();
+		boldFont = GuiUtil.boldFontWithSize(fontSize);
+		plainFont = GuiUtil.plainFontWithSize(fontSize);
+		FontMetrics boldMetrics = getFontMetrics(boldFont);
+		FontMetrics plainMetrics = getFontMetrics(plainFont);
+		digitTexts = new String[size + 1];
+		boldWidths = new int[size + 1];
+		plainWidths = new int[size + 1];
+		for(int d = 1; d <= size; d++) {
+			digitTexts[d] = GuiUtil.digitText(d);
+			boldWidths[d] = boldMetrics.stringWidth(digitTexts[d]);
+			plainWidths[d] = plainMetrics.stringWidth(digitTexts[d]);
+		}
+		// centers the digits' ascent vertically
+		boldBaseline = (cellPixels + boldMetrics.getAscent() - boldMetrics.getDescent()) / 2;
+		plainBaseline = (cellPixels + plainMetrics.getAscent() - plainMetrics.getDescent()) / 2;
 
-		// number buttons
-		for(int r = 0; r < 9; r++) {
-			for(int c = 0; c < 9; c++) {
-				JLabel label = new JLabel("", SwingConstants.CENTER);
-				label.setPreferredSize(new Dimension(60, 60));
-				label.setBorder(GuiUtil.createOutsideBorder(Color.black, 1));
-				label.addMouseListener(new CellMouseListener(this, r, c));
-				label.setOpaque(true); // make background color visible
-				boxArray[getBoxNumber(r, c)].add(label, GuiUtil.createGBC(c % 3, r % 3));
-				labelArray[r][c] = label;
-			}
+		int slotPixels = cellPixels / board.getBoxSize();
+		markFont = GuiUtil.plainFontWithSize(slotPixels * 9 / 10);
+		FontMetrics markMetrics = getFontMetrics(markFont);
+		markWidths = new int[size + 1];
+		for(int d = 1; d <= size; d++) {
+			markWidths[d] = markMetrics.stringWidth(digitTexts[d]);
 		}
+		markBaseline = (slotPixels + markMetrics.getAscent() - markMetrics.getDescent()) / 2;
 
+		int gridPixels = 2 * MARGIN + size * cellPixels;
+		setPreferredSize(new Dimension(gridPixels, gridPixels));
 		reset(); // clear all selections and highlights
+		revalidate();
+		repaint();
+	}
+
+	public BoardPanel(SudokuBoard board, SudokuFrame parent) {
+		this.board = board;
+		this.parent = parent;
+
+		setOpaque(true);
+		createCells();
+
+		CellMouseListener mouseListener = new CellMouseListener(this);
+		addMouseListener(mouseListener);
+		addMouseMotionListener(mouseListener);
 		setVisible(true);
 	}
 }
 
 class ButtonsPanel extends JPanel {
+	private SudokuFrame parent;
+	/** holds a button for each digit of the board */
+	private JPanel digitPanel = new JPanel(new GridBagLayout());
+	/** shows the progress of the solve or new game running in the background */
+	private JLabel statusLabel = new JLabel(" ", SwingConstants.CENTER);
+	/** cancels the solve or new game running in the background */
+	private JButton cancelButton;
+	
+	/** @param text - the progress of the solve or new game running in the background, or a hint */
+	void setStatus(String text) {
+		// html, so that long hints wrap
+		statusLabel.setText("<html><div style='width: 300px; text-align: center'>" + text + "</div></html>");
+	}
+	
+	/** @param running - is a solve or new game running in the background? */
+	void setTaskRunning(boolean running) {
+		cancelButton.setEnabled(running);
+	}
+	
+	/**
+	 * (re)creates the digit buttons- one per digit, in a boxSize x boxSize grid
+	 * @param boxSize - the width (in cells) of the board's boxes
+	 */
+	void createDigitButtons(int boxSize) {
+		digitPanel.removeAll();
+		int buttonPixels = Math.min(70, 210 / boxSize);
+		for(int i = 0; i < boxSize * boxSize; i++) {
+			final int guess = i + 1;
+			JButton numberButton = GuiUtil.createButton(GuiUtil.digitText(guess), buttonPixels, buttonPixels, 
+			                                        buttonPixels * 4 / 7, 
+			                                        e -> parent.gameBoardPanel.fillSelectedCells(guess));
+			numberButton.setMargin(new Insets(0, 0, 0, 0));
+			GuiUtil.addToGrid(digitPanel, numberButton, i % boxSize, i / boxSize);
+		}
+	}
 	
 	ButtonsPanel(SudokuBoard board, SudokuFrame parent) {
+		this.parent = parent;
 		this.setVisible(true);
 		this.setLayout(new GridBagLayout());
 		int currentGridRow = 0;
@@ -269,35 +908,58 @@ class ButtonsPanel extends JPanel {
 		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
 		
 		// number buttons
-		for(int i = 0; i < 9; i++) {
-			final int guess = i + 1;
-			JButton numberButton = GuiUtil.createButton(String.valueOf(i+ 1), 70,  70, 40, 
-					                                e -> parent.gameBoardPanel.fillSelectedCells(guess));
-			GuiUtil.addToGrid(this, numberButton, i % 3, currentGridRow + i / 3);
-		}
-		currentGridRow += 3;
+		createDigitButtons(board.getBoxSize());
+		GuiUtil.addToGrid(this, digitPanel, 0, currentGridRow++, 3, 1);
 
-		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 50), 0, currentGridRow++, 3, 1);
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 20), 0, currentGridRow++, 3, 1);
 		
 		JButton newGameButton = GuiUtil.createButton("New Game", 200, 50, 25, e -> new NewGameDialog(parent));
 		GuiUtil.addToGrid(this, newGameButton,  0, currentGridRow++, 3, 1);
 
-		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 20), 0, currentGridRow++, 3, 1);
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
 		
 		JButton solveButton = GuiUtil.createButton("Solve", 200, 50, 25, e -> parent.gameBoardPanel.solveBoard());
 		GuiUtil.addToGrid(this, solveButton, 0, currentGridRow++, 3, 1);
 
-		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 20), 0, currentGridRow++, 3, 1);
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
 
 		JButton checkButton = GuiUtil.createButton("Check", 200, 50, 25, e -> parent.gameBoardPanel.checkBoard());
 		GuiUtil.addToGrid(this, checkButton, 0, currentGridRow++, 3, 1);
 
-		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 20), 0, currentGridRow++, 3, 1);
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
 		
 		JButton uncheckButton = GuiUtil.createButton("Uncheck", 200, 50, 25, e -> {
+			parent.gameBoardPanel.setLiveCheck(false);
 			parent.gameBoardPanel.reset();
 			parent.gameBoardPanel.update();
 		});
 		GuiUtil.addToGrid(this,  uncheckButton, 0, currentGridRow++, 3, 1);
+
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
+
+		JButton liveCheckButton = GuiUtil.createButton("Live Check", 200, 50, 25, 
+		                                           e -> parent.gameBoardPanel.toggleLiveCheck());
+		GuiUtil.addToGrid(this, liveCheckButton, 0, currentGridRow++, 3, 1);
+
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
+
+		JButton hintButton = GuiUtil.createButton("Hint", 95, 50, 20, e -> parent.gameBoardPanel.showHint());
+		hintButton.setMargin(new Insets(0, 0, 0, 0));
+		GuiUtil.addToGrid(this, hintButton, 0, currentGridRow);
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(10, 0), 1, currentGridRow);
+		JButton marksButton = GuiUtil.createButton("Marks", 95, 50, 20, 
+		                                       e -> parent.gameBoardPanel.togglePencilMarks());
+		marksButton.setMargin(new Insets(0, 0, 0, 0));
+		GuiUtil.addToGrid(this, marksButton, 2, currentGridRow++);
+
+		GuiUtil.addToGrid(this, GuiUtil.createSpacer(0, 10), 0, currentGridRow++, 3, 1);
+
+		cancelButton = GuiUtil.createButton("Cancel", 200, 50, 25, e -> parent.gameBoardPanel.cancelTask());
+		cancelButton.setEnabled(false);
+		GuiUtil.addToGrid(this, cancelButton, 0, currentGridRow++, 3, 1);
+
+		statusLabel.setPreferredSize(new Dimension(320, 60));
+		statusLabel.setFont(GuiUtil.plainFontWithSize(15));
+		GuiUtil.addToGrid(this, statusLabel, 0, currentGridRow++, 3, 1);
 	}
-}
\ No newline at end of file
+}